@@ -7,7 +7,15 @@ echo "Step 1: Generating sources list..."
 find src -name "*.java" > sources.list
 
 echo "Step 2: Compiling Java sources..."
-javac -d out @sources.list
+javac --release 11 -d out @sources.list
+# ServiceLoader registrations (similarity algorithms)
+cp -r src/META-INF out/
+# The optional SIMD dense kernel needs the incubating Vector API (JDK 16+); without it
+# the scalar kernel is used
+if java --list-modules 2>/dev/null | grep -q '^jdk.incubator.vector@'; then
+    echo "  - Compiling SIMD kernel..."
+    javac --add-modules jdk.incubator.vector -cp out -d out $(find src-vector -name "*.java")
+fi
 
 echo "Step 3: Creating JAR files..."
 mkdir -p out_jar
@@ -27,3 +35,5 @@ echo "  java -jar out_jar/plagiarism-app-enhanced.jar     (Enhanced UI - Recomme
 echo ""
 echo "Or use console mode:"
 echo "  java -cp out com.example.plagiarism.ConsoleMain"
+echo ""
+echo "Add --add-modules jdk.incubator.vector to the java command for SIMD dense scoring."
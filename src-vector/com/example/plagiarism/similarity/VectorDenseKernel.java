@@ -0,0 +1,75 @@
+package com.example.plagiarism.similarity;
+
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * SIMD kernel on the incubating Vector API, using the widest float shape the CPU
+ * supports. Four rows are scored per pass so every query lane loaded from memory feeds
+ * four fused multiply-adds. Only instantiate through {@link DenseKernel#best()}.
+ *
+ * Compiled apart from src against the main classes, see build.sh.
+ */
+public class VectorDenseKernel implements DenseKernel {
+    private static final VectorSpecies<Float> SPECIES = FloatVector.SPECIES_PREFERRED;
+
+    @Override
+    public void dotProducts(float[] query, float[] matrix, int firstRow, int rows, float[] out) {
+        int dim = query.length;
+        int bound = SPECIES.loopBound(dim);
+        int r = 0;
+        for (; r + 4 <= rows; r += 4) {
+            int b0 = (firstRow + r) * dim;
+            int b1 = b0 + dim;
+            int b2 = b1 + dim;
+            int b3 = b2 + dim;
+            FloatVector acc0 = FloatVector.zero(SPECIES);
+            FloatVector acc1 = FloatVector.zero(SPECIES);
+            FloatVector acc2 = FloatVector.zero(SPECIES);
+            FloatVector acc3 = FloatVector.zero(SPECIES);
+            int i = 0;
+            for (; i < bound; i += SPECIES.length()) {
+                FloatVector q = FloatVector.fromArray(SPECIES, query, i);
+                acc0 = q.fma(FloatVector.fromArray(SPECIES, matrix, b0 + i), acc0);
+                acc1 = q.fma(FloatVector.fromArray(SPECIES, matrix, b1 + i), acc1);
+                acc2 = q.fma(FloatVector.fromArray(SPECIES, matrix, b2 + i), acc2);
+                acc3 = q.fma(FloatVector.fromArray(SPECIES, matrix, b3 + i), acc3);
+            }
+            float s0 = acc0.reduceLanes(VectorOperators.ADD);
+            float s1 = acc1.reduceLanes(VectorOperators.ADD);
+            float s2 = acc2.reduceLanes(VectorOperators.ADD);
+            float s3 = acc3.reduceLanes(VectorOperators.ADD);
+            for (; i < dim; i++) {
+                float q = query[i];
+                s0 += q * matrix[b0 + i];
+                s1 += q * matrix[b1 + i];
+                s2 += q * matrix[b2 + i];
+                s3 += q * matrix[b3 + i];
+            }
+            out[r] = s0;
+            out[r + 1] = s1;
+            out[r + 2] = s2;
+            out[r + 3] = s3;
+        }
+        for (; r < rows; r++) {
+            int base = (firstRow + r) * dim;
+            FloatVector acc = FloatVector.zero(SPECIES);
+            int i = 0;
+            for (; i < bound; i += SPECIES.length()) {
+                acc = FloatVector.fromArray(SPECIES, query, i)
+                        .fma(FloatVector.fromArray(SPECIES, matrix, base + i), acc);
+            }
+            float s = acc.reduceLanes(VectorOperators.ADD);
+            for (; i < dim; i++) {
+                s += query[i] * matrix[base + i];
+            }
+            out[r] = s;
+        }
+    }
+
+    @Override
+    public String name() {
+        return "simd-" + SPECIES.vectorBitSize();
+    }
+}
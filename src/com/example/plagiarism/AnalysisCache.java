@@ -0,0 +1,67 @@
+package com.example.plagiarism;
+
+import com.example.plagiarism.config.AppConfig;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded LRU cache of {@link AnalyzedDocument}s keyed by content hash, so a text is
+ * tokenized once no matter how many comparisons it takes part in.
+ */
+public class AnalysisCache {
+    private static volatile AnalysisCache shared;
+
+    private final int maxEntries;
+    private final Map<String, AnalyzedDocument> entries;
+
+    public AnalysisCache(int maxEntries) {
+        this.maxEntries = Math.max(1, maxEntries);
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, AnalyzedDocument> eldest) {
+                return size() > AnalysisCache.this.maxEntries;
+            }
+        };
+    }
+
+    public static AnalysisCache shared() {
+        AnalysisCache cache = shared;
+        if (cache == null) {
+            synchronized (AnalysisCache.class) {
+                cache = shared;
+                if (cache == null) {
+                    cache = new AnalysisCache(AppConfig.getInstance().getInt("analysis.cache.max_entries", 4096));
+                    shared = cache;
+                }
+            }
+        }
+        return cache;
+    }
+
+    public AnalyzedDocument analyze(Document document) {
+        String key = document.contentHash();
+        synchronized (entries) {
+            AnalyzedDocument cached = entries.get(key);
+            if (cached != null) return cached;
+        }
+        // Tokenize outside the lock; a racing thread may do the same work once, which is harmless
+        AnalyzedDocument analyzed = AnalyzedDocument.of(document);
+        synchronized (entries) {
+            AnalyzedDocument existing = entries.putIfAbsent(key, analyzed);
+            return existing != null ? existing : analyzed;
+        }
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.example.plagiarism;
+
+import com.example.plagiarism.similarity.NGramSimilarity;
+import com.example.plagiarism.similarity.SimilarityAlgorithm;
+import com.example.plagiarism.similarity.SparseTermVector;
+
+import java.io.Serializable;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Preprocessed form of a document's text: tokens, term frequencies (also as a sparse
+ * vector over {@link TermDictionary} ids), hashed n-grams and the prepared features of
+ * each {@link SimilarityAlgorithm} that has scored it.
+ * Built once per distinct text (see {@link AnalysisCache}) and shared read-only by every algorithm.
+ */
+public class AnalyzedDocument {
+    private final String contentHash;
+    private final List<String> tokens;
+    private final Map<String, Integer> termFrequencies;
+    private final Set<String> termSet;
+    private final SparseTermVector termVector;
+    private final long[] tokenFingerprints;
+    private final Map<Integer, long[]> ngramsBySize = new ConcurrentHashMap<>();
+    private final Map<SimilarityAlgorithm<?>, Serializable> features = new ConcurrentHashMap<>();
+    private volatile String joinedTokens;
+
+    private AnalyzedDocument(String contentHash, List<String> tokens) {
+        this.contentHash = contentHash;
+        this.tokens = Collections.unmodifiableList(tokens);
+        Map<String, Integer> freq = new HashMap<>();
+        for (String token : tokens) {
+            freq.merge(token, 1, Integer::sum);
+        }
+        this.termFrequencies = Collections.unmodifiableMap(freq);
+        this.termSet = Collections.unmodifiableSet(new HashSet<>(tokens));
+        this.termVector = SparseTermVector.of(freq, TermDictionary.shared());
+        this.tokenFingerprints = NGramSimilarity.tokenFingerprints(tokens);
+    }
+
+    public static AnalyzedDocument of(Document document) {
+        return new AnalyzedDocument(document.contentHash(),
+                TextPreprocessor.preprocessToTokens(document.extractText()));
+    }
+
+    public String contentHash() {
+        return contentHash;
+    }
+
+    public List<String> tokens() {
+        return tokens;
+    }
+
+    public Map<String, Integer> termFrequencies() {
+        return termFrequencies;
+    }
+
+    public Set<String> termSet() {
+        return termSet;
+    }
+
+    public SparseTermVector termVector() {
+        return termVector;
+    }
+
+    // Sorted distinct n-gram hashes; computed once per size and shared, so callers must not modify it
+    public long[] ngramHashes(int n) {
+        return ngramsBySize.computeIfAbsent(n, size -> NGramSimilarity.ngramHashes(tokenFingerprints, size));
+    }
+
+    // The algorithm's prepared features for this document, computed on first use
+    @SuppressWarnings("unchecked")
+    public <F extends Serializable> F features(SimilarityAlgorithm<F> algorithm) {
+        return (F) features.computeIfAbsent(algorithm, alg -> alg.prepare(this));
+    }
+
+    // Tokens joined back with single spaces, as the character-level algorithms expect
+    public String joinedTokens() {
+        String joined = joinedTokens;
+        if (joined == null) {
+            joined = String.join(" ", tokens);
+            joinedTokens = joined;
+        }
+        return joined;
+    }
+}
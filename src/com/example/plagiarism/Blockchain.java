@@ -3,19 +3,52 @@ package com.example.plagiarism;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 public class Blockchain {
     private final List<Block> chain = new ArrayList<>();
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+
+    // Notified while the chain lock is held, so listeners see blocks in chain order
+    public interface Listener {
+        void blockAdded(Block block);
+
+        // The whole chain was swapped out (e.g. after loading from storage)
+        void chainReplaced(List<Block> blocks);
+    }
 
     public Blockchain() {
         // genesis block with empty document
         addBlock(new Document("GENESIS","system","", ""));
     }
 
+    /**
+     * If a listener fails (e.g. the chain log cannot write), the block is taken off the chain
+     * again and the listeners that already saw it are handed the chain without it, so memory,
+     * storage and indexes stay in step; the failure is then rethrown.
+     */
     public synchronized Block addBlock(Document document) {
         String previousHash = chain.isEmpty() ? "" : chain.get(chain.size()-1).getHash();
         Block block = new Block(chain.size(), document, previousHash);
         chain.add(block);
+        List<Listener> notified = new ArrayList<>(listeners.size());
+        try {
+            for (Listener listener : listeners) {
+                listener.blockAdded(block);
+                notified.add(listener);
+            }
+        } catch (RuntimeException e) {
+            chain.remove(chain.size() - 1);
+            List<Block> view = Collections.unmodifiableList(chain);
+            for (Listener listener : notified) {
+                try {
+                    listener.chainReplaced(view);
+                } catch (RuntimeException resetFailure) {
+                    e.addSuppressed(resetFailure);
+                }
+            }
+            throw e;
+        }
         return block;
     }
 
@@ -41,5 +74,17 @@ public class Blockchain {
     public synchronized void clearAndLoad(List<Block> blocks) {
         chain.clear();
         chain.addAll(blocks);
+        List<Block> view = Collections.unmodifiableList(chain);
+        for (Listener listener : listeners) {
+            listener.chainReplaced(view);
+        }
+    }
+
+    public synchronized void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
     }
 }
@@ -23,11 +23,14 @@ public class ConsoleMain {
         }
         Document doc2 = new Document("OriginalSource", "web", LocalDate.now().toString(), text2, sourceUrl);
 
-        double cosScore = PlagiarismChecker.computeSimilarity(doc1, doc2, "Cosine");
-        double jacScore = PlagiarismChecker.computeSimilarity(doc1, doc2, "Jaccard");
+        PlagiarismChecker.SimilarityScores scores = PlagiarismChecker.computeAllSimilarities(doc1, doc2, false);
+        double cosScore = scores.cosine();
+        double jacScore = scores.jaccard();
+        double ngramScore = scores.ngram();
 
         String cosVerdict = PlagiarismChecker.verdictFor(cosScore);
         String jacVerdict = PlagiarismChecker.verdictFor(jacScore);
+        String ngramVerdict = PlagiarismChecker.verdictFor(ngramScore);
 
         System.out.println("Document 1: \"" + text1 + "\"");
         System.out.println("Document 2: \"" + text2 + "\"");
@@ -35,6 +38,8 @@ public class ConsoleMain {
         System.out.printf("→ Verdict: %s%n", cosVerdict);
         System.out.printf("→ Similarity (Jaccard): %.1f%%%n", jacScore * 100.0);
         System.out.printf("→ Verdict: %s%n", jacVerdict);
+        System.out.printf("→ Similarity (N-gram): %.1f%%%n", ngramScore * 100.0);
+        System.out.printf("→ Verdict: %s%n", ngramVerdict);
 
         Blockchain blockchain = new Blockchain();
         Block block = blockchain.addBlock(doc2);
@@ -1,30 +1,88 @@
 package com.example.plagiarism;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.Objects;
 
 public class Document {
     private final String title;
     private final String author;
     private final String submissionDate; // ISO-8601 date string
-    private final String text;
+    private final String text; // null when the text is loaded from textSource
+    private final TextSource textSource;
     private final String sourceUrl; // optional: where the original was found
     private double plagiarismScore; // 0.0 - 1.0
+    private volatile String contentHash; // lazily computed SHA-256 of text
 
     public Document(String title, String author, String submissionDate, String text) {
         this(title, author, submissionDate, text, "");
     }
 
+    // Stored text, e.g. in a chain file; read on first use and kept in the shared TextCache
+    public interface TextSource {
+        String load();
+
+        // SHA-256 of the text if the store already knows it, so contentHash() need not load it
+        default String contentHash() {
+            return null;
+        }
+
+        // UTF-8 bytes of the text; stores override this to stream it instead of building the String
+        default InputStream open() throws IOException {
+            return new ByteArrayInputStream(load().getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
     public Document(String title, String author, String submissionDate, String text, String sourceUrl) {
+        this(title, author, submissionDate, text == null ? "" : text, null, sourceUrl);
+    }
+
+    public Document(String title, String author, String submissionDate, TextSource textSource, String sourceUrl) {
+        this(title, author, submissionDate, null, textSource, sourceUrl);
+    }
+
+    private Document(String title, String author, String submissionDate, String text, TextSource textSource, String sourceUrl) {
         this.title = title == null ? "" : title;
         this.author = author == null ? "" : author;
         this.submissionDate = submissionDate == null ? "" : submissionDate;
-        this.text = text == null ? "" : text;
+        this.text = text;
+        this.textSource = textSource;
         this.sourceUrl = sourceUrl == null ? "" : sourceUrl;
         this.plagiarismScore = 0.0;
     }
 
     public String extractText() {
-        return text;
+        return getText();
+    }
+
+    // Hex SHA-256 of the UTF-8 text; identifies the content regardless of title/author
+    public String contentHash() {
+        String hash = contentHash;
+        if (hash == null && textSource != null) {
+            hash = textSource.contentHash();
+        }
+        if (hash == null) {
+            try {
+                MessageDigest digest = MessageDigest.getInstance("SHA-256");
+                byte[] hashBytes = digest.digest(getText().getBytes(StandardCharsets.UTF_8));
+                StringBuilder sb = new StringBuilder();
+                for (byte b : hashBytes) {
+                    sb.append(String.format("%02x", b));
+                }
+                hash = sb.toString();
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException("SHA-256 not available", e);
+            }
+            contentHash = hash;
+        }
+        return hash;
     }
 
     public double calculateSimilarity(Document other, String algorithmName) {
@@ -47,7 +105,14 @@ public class Document {
     }
 
     public String getText() {
-        return text;
+        if (text != null) return text;
+        return TextCache.shared().get(textSource);
+    }
+
+    // Reads a stored text as a stream, without holding it whole or adding it to the TextCache
+    public Reader openText() throws IOException {
+        if (text != null) return new StringReader(text);
+        return new InputStreamReader(textSource.open(), StandardCharsets.UTF_8);
     }
 
     public String getSourceUrl() {
@@ -70,12 +135,12 @@ public class Document {
         return Objects.equals(title, document.title) &&
                 Objects.equals(author, document.author) &&
                 Objects.equals(submissionDate, document.submissionDate) &&
-                Objects.equals(text, document.text);
+                Objects.equals(getText(), document.getText());
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(title, author, submissionDate, text);
+        return Objects.hash(title, author, submissionDate, getText());
     }
 
     @Override
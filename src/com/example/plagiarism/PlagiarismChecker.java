@@ -1,67 +1,222 @@
 package com.example.plagiarism;
 
 import com.example.plagiarism.similarity.LevenshteinSimilarity;
+import com.example.plagiarism.similarity.MinHash;
 import com.example.plagiarism.similarity.NGramSimilarity;
+import com.example.plagiarism.similarity.SimilarityAlgorithm;
+import com.example.plagiarism.similarity.SimilarityAlgorithms;
+import com.example.plagiarism.similarity.SparseTermVector;
 import com.example.plagiarism.config.AppConfig;
+import com.example.plagiarism.index.LshIndex;
+import com.example.plagiarism.index.TopK;
+import com.example.plagiarism.pairwise.CascadePairwiseScorer;
+import com.example.plagiarism.pairwise.CheckpointedPairwiseRun;
+import com.example.plagiarism.pairwise.CollectingSink;
+import com.example.plagiarism.pairwise.PairwiseResultSink;
+import com.example.plagiarism.pairwise.ParallelPairwiseEngine;
+import com.example.plagiarism.pairwise.ThresholdPairwiseJoin;
+import com.example.plagiarism.pairwise.TriangularScoreMatrix;
 
+import java.io.IOException;
+import java.io.Serializable;
+import java.nio.file.Path;
 import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
-import java.util.Map;
-import java.util.Set;
 
 public class PlagiarismChecker {
 
     public static double computeSimilarity(Document a, Document b, String algorithmName) {
-        List<String> tokensA = TextPreprocessor.preprocessToTokens(a.extractText());
-        List<String> tokensB = TextPreprocessor.preprocessToTokens(b.extractText());
-
-        switch (algorithmName.toLowerCase()) {
-            case "jaccard":
-                return computeJaccard(tokensA, tokensB);
-            case "levenshtein":
-                return LevenshteinSimilarity.compute(tokensA, tokensB);
-            case "ngram":
-                return NGramSimilarity.compute(tokensA, tokensB, 3);
-            case "cosine":
-            default:
-                return computeCosine(tokensA, tokensB);
-        }
+        AnalysisCache cache = AnalysisCache.shared();
+        return computeSimilarity(cache.analyze(a), cache.analyze(b), algorithmName);
+    }
+
+    // Unknown names fall back to cosine; see SimilarityAlgorithms
+    public static double computeSimilarity(AnalyzedDocument a, AnalyzedDocument b, String algorithmName) {
+        return SimilarityAlgorithms.forName(algorithmName).compare(a, b);
+    }
+
+    public static SimilarityScores computeAllSimilarities(Document a, Document b, boolean includeLevenshtein) {
+        AnalysisCache cache = AnalysisCache.shared();
+        return computeAllSimilarities(cache.analyze(a), cache.analyze(b), includeLevenshtein);
+    }
+
+    // Cosine and Jaccard share one merge over the term vectors; values match computeSimilarity
+    public static SimilarityScores computeAllSimilarities(AnalyzedDocument a, AnalyzedDocument b, boolean includeLevenshtein) {
+        SparseTermVector.Overlap overlap = SparseTermVector.overlapOf(a.termVector(), b.termVector());
+        double cosine = SparseTermVector.cosine(a.termVector(), b.termVector(), overlap);
+        double jaccard = SparseTermVector.jaccard(a.termVector(), b.termVector(), overlap);
+        int n = ngramSize();
+        double ngram = NGramSimilarity.compute(a.ngramHashes(n), b.ngramHashes(n));
+        double levenshtein = includeLevenshtein
+                ? LevenshteinSimilarity.compute(a.joinedTokens(), b.joinedTokens())
+                : Double.NaN;
+        return new SimilarityScores(cosine, jaccard, ngram, levenshtein);
     }
 
     public static Result checkPlagiarism(Document a, Document b, String algorithmName) {
+        Result result = evaluate(a, b, algorithmName);
+        a.setPlagiarismScore(result.score());
+        b.setPlagiarismScore(result.score());
+        return result;
+    }
+
+    // Same as checkPlagiarism but leaves the documents untouched, so it is safe to call concurrently
+    public static Result evaluate(Document a, Document b, String algorithmName) {
         double score = computeSimilarity(a, b, algorithmName);
-        a.setPlagiarismScore(score);
-        b.setPlagiarismScore(score);
-        String verdict = verdictFor(score);
-        return new Result(score, verdict);
+        return new Result(score, verdictFor(score));
     }
 
     public static List<PairwiseResult> checkPairwise(List<Document> documents, String algorithmName) {
-        List<PairwiseResult> results = new ArrayList<>();
+        CollectingSink sink = new CollectingSink();
+        checkPairwise(documents, algorithmName, sink);
+        return sink.results();
+    }
+
+    // Streams every pair to the sink in (i, j) order instead of building a list
+    public static void checkPairwise(List<Document> documents, String algorithmName, PairwiseResultSink sink) {
+        // Analyze every document up front so each text is tokenized once, independent of cache size
+        List<AnalyzedDocument> analyzed = analyzeAll(documents);
+        SimilarityAlgorithm<?> algorithm = SimilarityAlgorithms.forName(algorithmName);
+        sink.begin(documents);
         for (int i = 0; i < documents.size(); i++) {
             for (int j = i + 1; j < documents.size(); j++) {
-                Document a = documents.get(i);
-                Document b = documents.get(j);
-                double score = computeSimilarity(a, b, algorithmName);
-                results.add(new PairwiseResult(a, b, score, verdictFor(score)));
+                sink.accept(i, j, algorithm.compare(analyzed.get(i), analyzed.get(j)));
             }
         }
+        sink.end();
+    }
+
+    // Results are identical to checkPairwise, computed on the pool configured by pairwise.parallelism
+    public static List<PairwiseResult> checkPairwiseParallel(List<Document> documents, String algorithmName) {
+        try (ParallelPairwiseEngine engine = ParallelPairwiseEngine.shared()) {
+            return engine.run(documents, algorithmName);
+        }
+    }
+
+    // Parallel streaming variant; tiles reach the sink in no particular order
+    public static void checkPairwiseParallel(List<Document> documents, String algorithmName, PairwiseResultSink sink) {
+        try (ParallelPairwiseEngine engine = ParallelPairwiseEngine.shared()) {
+            engine.run(documents, algorithmName, sink);
+        }
+    }
+
+    /**
+     * Every score into a matrix file in the given directory, with periodic checkpoints; calling
+     * again with the same directory after a crash resumes and skips the tiles already done.
+     */
+    public static TriangularScoreMatrix checkPairwiseCheckpointed(List<Document> documents, String algorithmName,
+                                                                  Path directory) throws IOException {
+        return new CheckpointedPairwiseRun(documents, algorithmName, directory).run();
+    }
+
+    /**
+     * Approximate all-pairs: MinHash signatures go into a banded LSH index (lsh.bands x lsh.rows
+     * from AppConfig) and only the colliding candidate pairs are scored exactly. Pairs that never
+     * collide are left out, so the result is the subset of checkPairwise likely to be similar.
+     */
+    public static List<PairwiseResult> checkPairwiseLsh(List<Document> documents, String algorithmName) {
+        AppConfig config = AppConfig.getInstance();
+        LshIndex lsh = new LshIndex(Math.max(1, config.getInt("lsh.bands", 20)),
+                Math.max(1, config.getInt("lsh.rows", 5)));
+        MinHash minHash = new MinHash(lsh.signatureLength(), 0x5eed_1234L);
+
+        List<AnalyzedDocument> analyzed = analyzeAll(documents);
+        SimilarityAlgorithm<?> algorithm = SimilarityAlgorithms.forName(algorithmName);
+        int shingleSize = algorithm.shingleSize();
+        for (int i = 0; i < analyzed.size(); i++) {
+            AnalyzedDocument d = analyzed.get(i);
+            lsh.add(i, shingleSize > 0 ? minHash.signatureOfHashes(d.ngramHashes(shingleSize)) : minHash.signature(d.termSet()));
+        }
+
+        double safeThreshold = safeThreshold();
+        double highThreshold = highThreshold();
+        List<PairwiseResult> results = new ArrayList<>();
+        for (long pair : lsh.candidatePairs()) {
+            int i = LshIndex.firstOf(pair);
+            int j = LshIndex.secondOf(pair);
+            double score = algorithm.compare(analyzed.get(i), analyzed.get(j));
+            results.add(new PairwiseResult(documents.get(i), documents.get(j), score,
+                    verdictFor(score, safeThreshold, highThreshold)));
+        }
         return results;
     }
 
+    // Only pairs scoring at or above similarity.threshold.high
+    public static List<PairwiseResult> checkPairwiseAboveThreshold(List<Document> documents, String algorithmName) {
+        return checkPairwiseAboveThreshold(documents, algorithmName, highThreshold() / 100.0);
+    }
+
+    // Only pairs with score >= minScore (0.0 - 1.0); pairs that provably cannot qualify are never scored
+    public static List<PairwiseResult> checkPairwiseAboveThreshold(List<Document> documents, String algorithmName, double minScore) {
+        return new ThresholdPairwiseJoin(algorithmName, minScore).run(documents);
+    }
+
+    /**
+     * Pairs that clear every stage of the size-bound / MinHash / exact cascade (cascade.* bars
+     * in AppConfig), with per-stage pass rates and timings for tuning.
+     */
+    public static CascadePairwiseScorer.Result checkPairwiseCascade(List<Document> documents, String algorithmName) {
+        return new CascadePairwiseScorer(algorithmName).run(documents);
+    }
+
+    // The k corpus documents most similar to the query, best first, as (query, match) pairs
+    public static List<PairwiseResult> topMatches(Document query, List<Document> corpus, String algorithmName, int k) {
+        return topMatches(query, corpus, SimilarityAlgorithms.forName(algorithmName), k);
+    }
+
+    // Candidates whose upper bound cannot beat the current k-th best are never scored exactly
+    private static <F extends Serializable> List<PairwiseResult> topMatches(Document query, List<Document> corpus,
+                                                                           SimilarityAlgorithm<F> algorithm, int k) {
+        AnalysisCache cache = AnalysisCache.shared();
+        F queryFeatures = cache.analyze(query).features(algorithm);
+        double safeThreshold = safeThreshold();
+        double highThreshold = highThreshold();
+        TopK<PairwiseResult> top = new TopK<>(k);
+        for (Document candidate : corpus) {
+            if (candidate == query) continue;
+            F features = cache.analyze(candidate).features(algorithm);
+            if (!top.canEnter(algorithm.upperBound(queryFeatures, features))) continue;
+            double score = algorithm.score(queryFeatures, features, Math.max(0.0, top.threshold()));
+            if (top.canEnter(score)) {
+                top.offer(new PairwiseResult(query, candidate, score, verdictFor(score, safeThreshold, highThreshold)), score);
+            }
+        }
+        return top.toSortedList();
+    }
+
+    public static List<AnalyzedDocument> analyzeAll(List<Document> documents) {
+        AnalysisCache cache = AnalysisCache.shared();
+        List<AnalyzedDocument> analyzed = new ArrayList<>(documents.size());
+        for (Document d : documents) {
+            analyzed.add(cache.analyze(d));
+        }
+        return analyzed;
+    }
+
     public static String verdictFor(double score) {
-        AppConfig config = AppConfig.getInstance();
-        double safeThreshold = config.getDouble("similarity.threshold.safe", 30.0);
-        double highThreshold = config.getDouble("similarity.threshold.high", 70.0);
+        return verdictFor(score, safeThreshold(), highThreshold());
+    }
 
+    // Thresholds are percentages; batch loops read them once instead of per pair
+    public static String verdictFor(double score, double safeThreshold, double highThreshold) {
         double percent = score * 100.0;
         if (percent < safeThreshold) return "Safe";
         if (percent <= highThreshold) return "Moderate";
         return "High";
     }
 
+    public static int ngramSize() {
+        return Math.max(1, AppConfig.getInstance().getInt("ngram.size", 3));
+    }
+
+    public static double safeThreshold() {
+        return AppConfig.getInstance().getDouble("similarity.threshold.safe", 30.0);
+    }
+
+    public static double highThreshold() {
+        return AppConfig.getInstance().getDouble("similarity.threshold.high", 70.0);
+    }
+
     public static class Result {
         private final double score;
         private final String verdict;
@@ -70,6 +225,38 @@ public class PlagiarismChecker {
         public String verdict() { return verdict; }
     }
 
+    public static class SimilarityScores {
+        private final double cosine;
+        private final double jaccard;
+        private final double ngram;
+        private final double levenshtein;
+        public SimilarityScores(double cosine, double jaccard, double ngram, double levenshtein) {
+            this.cosine = cosine; this.jaccard = jaccard; this.ngram = ngram; this.levenshtein = levenshtein;
+        }
+        public double cosine() { return cosine; }
+        public double jaccard() { return jaccard; }
+        public double ngram() { return ngram; }
+        // NaN unless Levenshtein was requested
+        public double levenshtein() { return levenshtein; }
+        public boolean hasLevenshtein() { return !Double.isNaN(levenshtein); }
+
+        // Score by algorithm name, resolved through SimilarityAlgorithms like computeSimilarity
+        public double score(String algorithmName) {
+            SimilarityAlgorithm<?> algorithm = SimilarityAlgorithms.forName(algorithmName);
+            if (algorithm.shingleSize() > 0) return ngram;
+            switch (algorithm.name()) {
+                case "jaccard":
+                    return jaccard;
+                case "levenshtein":
+                    if (!hasLevenshtein()) throw new IllegalStateException("Levenshtein was not computed");
+                    return levenshtein;
+                case "cosine":
+                default:
+                    return cosine;
+            }
+        }
+    }
+
     public static class PairwiseResult {
         private final Document a;
         private final Document b;
@@ -83,46 +270,4 @@ public class PlagiarismChecker {
         public double score() { return score; }
         public String verdict() { return verdict; }
     }
-
-    // Beginner-friendly cosine and jaccard implementations in one place
-    private static double computeCosine(List<String> tokensA, List<String> tokensB) {
-        Map<String, Integer> freqA = buildFrequencyMap(tokensA);
-        Map<String, Integer> freqB = buildFrequencyMap(tokensB);
-        Set<String> vocabulary = new HashSet<>();
-        vocabulary.addAll(freqA.keySet());
-        vocabulary.addAll(freqB.keySet());
-
-        double dot = 0.0;
-        double normA = 0.0;
-        double normB = 0.0;
-        for (String term : vocabulary) {
-            int a = freqA.getOrDefault(term, 0);
-            int b = freqB.getOrDefault(term, 0);
-            dot += a * b;
-        }
-        for (int a : freqA.values()) normA += a * a;
-        for (int b : freqB.values()) normB += b * b;
-        if (normA == 0.0 || normB == 0.0) return 0.0;
-        return dot / (Math.sqrt(normA) * Math.sqrt(normB));
-    }
-
-    private static double computeJaccard(List<String> tokensA, List<String> tokensB) {
-        Set<String> setA = new HashSet<>(tokensA);
-        Set<String> setB = new HashSet<>(tokensB);
-        if (setA.isEmpty() && setB.isEmpty()) return 0.0;
-        Set<String> intersection = new HashSet<>(setA);
-        intersection.retainAll(setB);
-        Set<String> union = new HashSet<>(setA);
-        union.addAll(setB);
-        if (union.isEmpty()) return 0.0;
-        return (double) intersection.size() / (double) union.size();
-    }
-
-    private static Map<String, Integer> buildFrequencyMap(List<String> tokens) {
-        Map<String, Integer> map = new HashMap<>();
-        for (String token : tokens) {
-            map.merge(token, 1, Integer::sum);
-        }
-        return map;
-    }
 }
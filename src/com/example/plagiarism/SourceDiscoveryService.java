@@ -2,6 +2,11 @@ package com.example.plagiarism;
 
 import com.example.plagiarism.ai.AISourceDiscoveryService;
 import com.example.plagiarism.config.AppConfig;
+import com.example.plagiarism.index.InvertedIndex;
+import com.example.plagiarism.index.FingerprintIndex;
+import com.example.plagiarism.index.SimHashIndex;
+import com.example.plagiarism.index.TopK;
+import com.example.plagiarism.similarity.SparseTermVector;
 
 import java.net.URI;
 import java.net.http.HttpClient;
@@ -30,6 +35,15 @@ import java.util.regex.Pattern;
  * 3) Scrape result links and fetch pages
  * 4) Convert HTML to plain text and compute similarity
  * 5) Return the best match above a threshold
+ *
+ * When a {@link SimHashIndex} over the local blockchain is supplied, near-duplicates already
+ * on the chain are checked first and the web is only searched if none of them matches. A
+ * {@link FingerprintIndex} over the chain also finds chain documents that passages of the
+ * submission were copied from, even when the documents as a whole differ. Failing both, an
+ * {@link InvertedIndex} over the chain supplies the chain document with the highest cosine.
+ *
+ * {@link #discoverTopSources} ranks the K best sources from the local corpus (an
+ * {@link InvertedIndex} over the chain) and/or fetched web pages instead of keeping one.
  */
 public class SourceDiscoveryService {
 
@@ -46,17 +60,51 @@ public class SourceDiscoveryService {
         public String text() { return text; }
     }
 
+    public static class RankedSource extends DiscoveredSource {
+        private final double score;
+        private final boolean local;
+
+        public RankedSource(String url, String text, double score, boolean local) {
+            super(url, text);
+            this.score = score;
+            this.local = local;
+        }
+
+        // Cosine similarity to the submission
+        public double score() { return score; }
+        // True for documents already on the blockchain
+        public boolean isLocal() { return local; }
+    }
+
     private final HttpClient httpClient;
     private final AISourceDiscoveryService aiService;
     private final AppConfig config;
+    private final SimHashIndex localIndex;
+    private final InvertedIndex localCorpus;
+    private final FingerprintIndex localPassages;
 
     public SourceDiscoveryService() {
+        this(null);
+    }
+
+    public SourceDiscoveryService(SimHashIndex localIndex) {
+        this(localIndex, null);
+    }
+
+    public SourceDiscoveryService(SimHashIndex localIndex, InvertedIndex localCorpus) {
+        this(localIndex, localCorpus, null);
+    }
+
+    public SourceDiscoveryService(SimHashIndex localIndex, InvertedIndex localCorpus, FingerprintIndex localPassages) {
         this.httpClient = HttpClient.newBuilder()
                 .connectTimeout(Duration.ofSeconds(10))
                 .followRedirects(HttpClient.Redirect.NORMAL)
                 .build();
         this.aiService = new AISourceDiscoveryService();
         this.config = AppConfig.getInstance();
+        this.localIndex = localIndex;
+        this.localCorpus = localCorpus;
+        this.localPassages = localPassages;
     }
 
     public Optional<DiscoveredSource> discoverOriginalSource(String submissionText) {
@@ -64,6 +112,17 @@ public class SourceDiscoveryService {
             return Optional.empty();
         }
 
+        Optional<DiscoveredSource> local = findLocalNearDuplicate(submissionText);
+        if (local.isEmpty()) {
+            local = findLocalCopiedPassages(submissionText);
+        }
+        if (local.isEmpty()) {
+            local = findLocalSimilar(submissionText);
+        }
+        if (local.isPresent()) {
+            return local;
+        }
+
         if (config.getBoolean("ai.enabled", true)) {
             Optional<DiscoveredSource> aiResult = aiService.discoverWithAI(submissionText);
             if (aiResult.isPresent()) {
@@ -98,6 +157,103 @@ public class SourceDiscoveryService {
         return Optional.empty();
     }
 
+    /**
+     * The k sources most similar to the submission by cosine, best first. Web pages whose
+     * cosine upper bound cannot beat the current k-th best are not scored, and the search
+     * stops once k perfect matches are held.
+     */
+    public List<RankedSource> discoverTopSources(String submissionText, int k, boolean includeLocal, boolean includeWeb) {
+        if (submissionText == null || submissionText.isBlank() || k <= 0) {
+            return List.of();
+        }
+        Document submission = new Document("Submission", "system", "", submissionText);
+        TopK<RankedSource> top = new TopK<>(k);
+        Set<String> seenUrls = new HashSet<>();
+
+        if (includeLocal && localCorpus != null) {
+            for (InvertedIndex.SearchHit hit : localCorpus.search(submission, k)) {
+                Document d = hit.block().getDocument();
+                String url = d.getSourceUrl() == null || d.getSourceUrl().isBlank()
+                        ? "blockchain:block/" + hit.block().getIndex()
+                        : d.getSourceUrl();
+                if (seenUrls.add(url)) {
+                    top.offer(new RankedSource(url, d.getText(), hit.score(), true), hit.score());
+                }
+            }
+        }
+
+        if (includeWeb) {
+            SparseTermVector submissionVector = AnalysisCache.shared().analyze(submission).termVector();
+            for (String q : buildQueries(submissionText)) {
+                for (String link : searchDuckDuckGo(q)) {
+                    if (!seenUrls.add(link)) continue;
+                    String pageText = fetchPageText(link);
+                    if (pageText.isBlank()) continue;
+                    Document candidate = new Document("Candidate", "web", "", pageText);
+                    SparseTermVector candidateVector = AnalysisCache.shared().analyze(candidate).termVector();
+                    if (!top.canEnter(SparseTermVector.cosineUpperBound(submissionVector, candidateVector))) continue;
+                    double score = SparseTermVector.cosine(submissionVector, candidateVector);
+                    top.offer(new RankedSource(link, pageText, score, false), score);
+                    // Nothing can beat k exact matches
+                    if (top.isFull() && top.threshold() >= 1.0) {
+                        return top.toSortedList();
+                    }
+                }
+            }
+        }
+        return top.toSortedList();
+    }
+
+    // Closest chain document within the SimHash distance that also passes the cosine bar
+    private Optional<DiscoveredSource> findLocalNearDuplicate(String submissionText) {
+        if (localIndex == null) return Optional.empty();
+        Document submission = new Document("Submission", "system", "", submissionText);
+        for (SimHashIndex.NearDuplicate near : localIndex.findNear(submission)) {
+            Document candidate = near.block().getDocument();
+            double score = PlagiarismChecker.computeSimilarity(submission, candidate, "Cosine");
+            if (score >= 0.55) {
+                String url = candidate.getSourceUrl();
+                if (url == null || url.isBlank()) {
+                    url = "blockchain:block/" + near.block().getIndex();
+                }
+                return Optional.of(new DiscoveredSource(url, candidate.getText()));
+            }
+        }
+        return Optional.empty();
+    }
+
+    // Chain document whose copied passages cover the most of the submission, if enough of it
+    private Optional<DiscoveredSource> findLocalCopiedPassages(String submissionText) {
+        if (localPassages == null) return Optional.empty();
+        List<FingerprintIndex.SourceMatch> matches = localPassages.search(submissionText);
+        if (matches.isEmpty()) return Optional.empty();
+        FingerprintIndex.SourceMatch best = matches.get(0);
+        double coverage = (double) best.matchedChars() / submissionText.length();
+        if (coverage < config.getDouble("source_discovery.min_passage_coverage", 0.2)) return Optional.empty();
+        Document candidate = best.block().getDocument();
+        String url = candidate.getSourceUrl();
+        if (url == null || url.isBlank()) {
+            url = "blockchain:block/" + best.block().getIndex();
+        }
+        return Optional.of(new DiscoveredSource(url, candidate.getText()));
+    }
+
+    // Chain document with the highest cosine, if it clears the bar web pages must clear
+    private Optional<DiscoveredSource> findLocalSimilar(String submissionText) {
+        if (localCorpus == null) return Optional.empty();
+        Document submission = new Document("Submission", "system", "", submissionText);
+        for (InvertedIndex.SearchHit hit : localCorpus.search(submission, 1)) {
+            if (hit.score() < 0.55) break;
+            Document candidate = hit.block().getDocument();
+            String url = candidate.getSourceUrl();
+            if (url == null || url.isBlank()) {
+                url = "blockchain:block/" + hit.block().getIndex();
+            }
+            return Optional.of(new DiscoveredSource(url, candidate.getText()));
+        }
+        return Optional.empty();
+    }
+
     private List<String> buildQueries(String text) {
         List<String> queries = new ArrayList<>();
         // Sentence-based exact-match queries
@@ -1,5 +1,7 @@
 package com.example.plagiarism;
 
+import com.example.plagiarism.storage.ChainSegment;
+
 import java.io.BufferedReader;
 import java.io.BufferedWriter;
 import java.io.File;
@@ -38,7 +40,25 @@ public class StorageManager {
         }
     }
 
+    // Binary segment format, see ChainSegment
+    public static void saveChainToSegment(Blockchain blockchain, File file) throws IOException {
+        ChainSegment.write(blockchain.getBlocks(), file.toPath());
+    }
+
+    /**
+     * Reads either format; segment files are recognized by their magic number. Documents
+     * from a segment load their text from the file on first use.
+     */
     public static Blockchain loadChainFromFile(File file) throws IOException {
+        if (ChainSegment.isSegment(file.toPath())) {
+            try (ChainSegment segment = ChainSegment.open(file.toPath())) {
+                Blockchain blockchain = new Blockchain();
+                if (segment.size() > 0) {
+                    blockchain.clearAndLoad(segment.blocks(true));
+                }
+                return blockchain;
+            }
+        }
         List<Block> loaded = new ArrayList<>();
         try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
             String line;
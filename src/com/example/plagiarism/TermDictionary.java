@@ -0,0 +1,53 @@
+package com.example.plagiarism;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Maps tokens to dense int ids so similarity code can work on primitive arrays
+ * instead of hashing strings. Ids are assigned in first-seen order and never change
+ * for the lifetime of the dictionary.
+ */
+public class TermDictionary {
+    private static final TermDictionary SHARED = new TermDictionary();
+
+    private final Map<String, Integer> ids = new ConcurrentHashMap<>();
+    private final List<String> terms = new ArrayList<>();
+
+    public static TermDictionary shared() {
+        return SHARED;
+    }
+
+    public int idFor(String term) {
+        Integer id = ids.get(term);
+        if (id != null) return id;
+        synchronized (terms) {
+            id = ids.get(term);
+            if (id != null) return id;
+            int newId = terms.size();
+            terms.add(term);
+            ids.put(term, newId);
+            return newId;
+        }
+    }
+
+    // Returns -1 for terms that were never seen, without adding them
+    public int lookup(String term) {
+        Integer id = ids.get(term);
+        return id == null ? -1 : id;
+    }
+
+    public String termFor(int id) {
+        synchronized (terms) {
+            return terms.get(id);
+        }
+    }
+
+    public int size() {
+        synchronized (terms) {
+            return terms.size();
+        }
+    }
+}
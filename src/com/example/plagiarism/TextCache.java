@@ -0,0 +1,81 @@
+package com.example.plagiarism;
+
+import com.example.plagiarism.config.AppConfig;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded LRU cache of document texts that live outside the heap (see
+ * {@link Document.TextSource}), so a large chain only keeps the recently used texts in
+ * memory. The bound is the total number of characters held.
+ */
+public class TextCache {
+    private static volatile TextCache shared;
+
+    private final long maxChars;
+    private final Map<Document.TextSource, String> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long chars;
+    private long loads;
+
+    public TextCache(long maxChars) {
+        this.maxChars = Math.max(1, maxChars);
+    }
+
+    public static TextCache shared() {
+        TextCache cache = shared;
+        if (cache == null) {
+            synchronized (TextCache.class) {
+                cache = shared;
+                if (cache == null) {
+                    cache = new TextCache(AppConfig.getInstance().getInt("document.text_cache.max_chars", 16_000_000));
+                    shared = cache;
+                }
+            }
+        }
+        return cache;
+    }
+
+    public String get(Document.TextSource source) {
+        synchronized (entries) {
+            String cached = entries.get(source);
+            if (cached != null) return cached;
+        }
+        // Load outside the lock; a racing thread may read the same text once, which is harmless
+        String text = source.load();
+        synchronized (entries) {
+            loads++;
+            String existing = entries.putIfAbsent(source, text);
+            if (existing != null) return existing;
+            chars += text.length();
+            // A text larger than the whole bound is returned but not kept
+            Iterator<String> eldest = entries.values().iterator();
+            while (chars > maxChars && eldest.hasNext()) {
+                chars -= eldest.next().length();
+                eldest.remove();
+            }
+            return text;
+        }
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    // Texts read from their stores so far, i.e. cache misses
+    public long loads() {
+        synchronized (entries) {
+            return loads;
+        }
+    }
+
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+            chars = 0;
+        }
+    }
+}
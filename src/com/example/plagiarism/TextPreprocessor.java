@@ -1,47 +1,214 @@
 package com.example.plagiarism;
 
-import java.text.BreakIterator;
+import java.io.IOException;
+import java.io.Reader;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.HashSet;
 import java.util.List;
-import java.util.Locale;
-import java.util.Set;
-import java.util.regex.Pattern;
 
+/**
+ * Lowercases text, keeps runs of ASCII letters as tokens, drops English stopwords and
+ * duplicates.
+ *
+ * Tokenization is a single scan over the input: characters are lowercased one at a time
+ * into a small token buffer, and each finished token is handed to a {@link TokenSink}. No
+ * lowercased or cleaned copy of the whole text is ever built, and a {@link Reader} can be
+ * tokenized without loading it into memory. Stopwords are looked up in a collision-free
+ * hash table built at class load time.
+ */
 public class TextPreprocessor {
-    private static final Pattern NON_LETTER = Pattern.compile("[^a-zA-Z\\s]");
-    private static final Set<String> STOPWORDS = new HashSet<>(Arrays.asList(
+    private static final String[] STOPWORDS = {
             // Common English stopwords
             "a","an","the","and","or","but","if","while","of","at","by","for","with","about","against","between","into","through","during","before","after","above","below","to","from","up","down","in","out","on","off","over","under","again","further","then","once","here","there","when","where","why","how","all","any","both","each","few","more","most","other","some","such","no","nor","not","only","own","same","so","than","too","very","can","will","just","don","should","now","is","am","are","was","were","be","been","being","have","has","had","do","does","did"
-    ));
+    };
+    private static final StopwordTable STOPWORD_TABLE = StopwordTable.build(STOPWORDS);
+
+    // Receives each non-stopword token; the buffer is reused, so copy what you keep
+    public interface TokenSink {
+        void token(char[] buffer, int length);
+    }
 
     public static List<String> preprocessToTokens(String raw) {
         if (raw == null || raw.isEmpty()) {
             return List.of();
         }
-        String lowered = raw.toLowerCase(Locale.ROOT);
-        String lettersOnly = NON_LETTER.matcher(lowered).replaceAll(" ");
-        List<String> tokens = splitWords(lettersOnly);
-        List<String> filtered = new ArrayList<>();
-        Set<String> seen = new HashSet<>();
-        for (String token : tokens) {
-            if (token.isBlank()) continue;
-            if (STOPWORDS.contains(token)) continue;
-            if (seen.add(token)) { // remove duplicates
-                filtered.add(token);
+        DistinctTokens distinct = new DistinctTokens();
+        tokenize(raw, distinct);
+        return distinct.tokens;
+    }
+
+    public static List<String> preprocessToTokens(Reader reader) throws IOException {
+        DistinctTokens distinct = new DistinctTokens();
+        tokenize(reader, distinct);
+        return distinct.tokens;
+    }
+
+    public static void tokenize(CharSequence text, TokenSink sink) {
+        Scanner scanner = new Scanner(sink);
+        for (int i = 0, n = text.length(); i < n; i++) {
+            scanner.accept(text.charAt(i));
+        }
+        scanner.finish();
+    }
+
+    public static void tokenize(Reader reader, TokenSink sink) throws IOException {
+        Scanner scanner = new Scanner(sink);
+        char[] chunk = new char[8192];
+        int read;
+        while ((read = reader.read(chunk)) != -1) {
+            for (int i = 0; i < read; i++) {
+                scanner.accept(chunk[i]);
+            }
+        }
+        scanner.finish();
+    }
+
+    // Same rules as lowercasing with Locale.ROOT and then splitting on anything but [a-z]
+    private static final class Scanner {
+        private final TokenSink sink;
+        private char[] buffer = new char[32];
+        private int length;
+
+        Scanner(TokenSink sink) {
+            this.sink = sink;
+        }
+
+        void accept(char c) {
+            if (c >= 'a' && c <= 'z') {
+                append(c);
+            } else if (c >= 'A' && c <= 'Z') {
+                append((char) (c + ('a' - 'A')));
+            } else if (c < 128) {
+                finish();
+            } else if (c == '\u0130') {
+                // Lowercases to 'i' followed by a combining dot, which ends the token
+                append('i');
+                finish();
+            } else {
+                char lower = Character.toLowerCase(c);
+                if (lower >= 'a' && lower <= 'z') { // e.g. KELVIN SIGN -> 'k'
+                    append(lower);
+                } else {
+                    finish();
+                }
+            }
+        }
+
+        void finish() {
+            if (length == 0) return;
+            if (!STOPWORD_TABLE.contains(buffer, length)) {
+                sink.token(buffer, length);
+            }
+            length = 0;
+        }
+
+        private void append(char c) {
+            if (length == buffer.length) {
+                buffer = Arrays.copyOf(buffer, length * 2);
             }
+            buffer[length++] = c;
+        }
+    }
+
+    // Keeps first occurrences in order; Strings are only created for tokens not seen before
+    private static final class DistinctTokens implements TokenSink {
+        final List<String> tokens = new ArrayList<>();
+        private String[] table = new String[64];
+        private int[] hashes = new int[64];
+
+        @Override
+        public void token(char[] buffer, int length) {
+            int h = hash(buffer, length, 0);
+            int mask = table.length - 1;
+            int slot = h & mask;
+            while (table[slot] != null) {
+                if (hashes[slot] == h && equalsChars(table[slot], buffer, length)) return;
+                slot = (slot + 1) & mask;
+            }
+            String token = new String(buffer, 0, length);
+            table[slot] = token;
+            hashes[slot] = h;
+            tokens.add(token);
+            if (tokens.size() * 2 > table.length) grow();
+        }
+
+        private void grow() {
+            String[] oldTable = table;
+            int[] oldHashes = hashes;
+            table = new String[oldTable.length * 2];
+            hashes = new int[oldTable.length * 2];
+            int mask = table.length - 1;
+            for (int i = 0; i < oldTable.length; i++) {
+                if (oldTable[i] == null) continue;
+                int slot = oldHashes[i] & mask;
+                while (table[slot] != null) slot = (slot + 1) & mask;
+                table[slot] = oldTable[i];
+                hashes[slot] = oldHashes[i];
+            }
+        }
+    }
+
+    // Open-addressing table whose seed is chosen so no two stopwords share a slot
+    private static final class StopwordTable {
+        private final char[][] slots;
+        private final int seed;
+        private final int mask;
+
+        private StopwordTable(char[][] slots, int seed) {
+            this.slots = slots;
+            this.seed = seed;
+            this.mask = slots.length - 1;
+        }
+
+        static StopwordTable build(String[] words) {
+            int size = Integer.highestOneBit(words.length * 8);
+            while (true) {
+                for (int seed = 1; seed < 10_000; seed++) {
+                    char[][] slots = new char[size][];
+                    boolean collision = false;
+                    for (String w : words) {
+                        char[] chars = w.toCharArray();
+                        int slot = hash(chars, chars.length, seed) & (size - 1);
+                        if (slots[slot] != null && !Arrays.equals(slots[slot], chars)) {
+                            collision = true;
+                            break;
+                        }
+                        slots[slot] = chars;
+                    }
+                    if (!collision) return new StopwordTable(slots, seed);
+                }
+                size *= 2;
+            }
+        }
+
+        boolean contains(char[] buffer, int length) {
+            char[] candidate = slots[hash(buffer, length, seed) & mask];
+            if (candidate == null || candidate.length != length) return false;
+            for (int i = 0; i < length; i++) {
+                if (candidate[i] != buffer[i]) return false;
+            }
+            return true;
+        }
+    }
+
+    // FNV-1a over chars with a final avalanche step
+    private static int hash(char[] buffer, int length, int seed) {
+        int h = 0x811c9dc5 ^ seed;
+        for (int i = 0; i < length; i++) {
+            h ^= buffer[i];
+            h *= 0x01000193;
         }
-        return filtered;
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        return h;
     }
 
-    private static List<String> splitWords(String text) {
-        // Beginner-friendly split on whitespace
-        String[] parts = text.trim().split("\\s+");
-        List<String> result = new ArrayList<>();
-        for (String p : parts) {
-            if (!p.isBlank()) result.add(p);
+    private static boolean equalsChars(String s, char[] buffer, int length) {
+        if (s.length() != length) return false;
+        for (int i = 0; i < length; i++) {
+            if (s.charAt(i) != buffer[i]) return false;
         }
-        return result;
+        return true;
     }
 }
@@ -44,6 +44,24 @@ public class AppConfig {
         properties.putIfAbsent("blockchain.auto_save", "true");
         properties.putIfAbsent("source_discovery.max_results", "5");
         properties.putIfAbsent("source_discovery.min_confidence", "0.55");
+        properties.putIfAbsent("source_discovery.min_passage_coverage", "0.2");
+        properties.putIfAbsent("analysis.cache.max_entries", "4096");
+        properties.putIfAbsent("document.text_cache.max_chars", "16000000");
+        properties.putIfAbsent("pairwise.parallelism", "0");
+        properties.putIfAbsent("pairwise.tile_size", "64");
+        properties.putIfAbsent("pairwise.checkpoint.interval_seconds", "30");
+        properties.putIfAbsent("ngram.size", "3");
+        properties.putIfAbsent("winnowing.k", "20");
+        properties.putIfAbsent("winnowing.window", "10");
+        properties.putIfAbsent("lsh.bands", "20");
+        properties.putIfAbsent("lsh.rows", "5");
+        properties.putIfAbsent("simhash.max_distance", "3");
+        properties.putIfAbsent("dense.dimensions", "1024");
+        properties.putIfAbsent("dense.simd", "true");
+        properties.putIfAbsent("cascade.minhash.hashes", "64");
+        properties.putIfAbsent("storage.log.sync", "true");
+        properties.putIfAbsent("storage.segment.compress", "true");
+        properties.putIfAbsent("storage.segment.dictionary_bytes", "32768");
     }
 
     public void saveConfig() {
@@ -0,0 +1,69 @@
+package com.example.plagiarism.export;
+
+import com.example.plagiarism.Document;
+import com.example.plagiarism.PlagiarismChecker;
+import com.example.plagiarism.pairwise.PairwiseResultSink;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.List;
+
+/**
+ * Streams pairs to a CSV file in the same format as {@link ResultExporter#exportToCSV},
+ * one row per pair as it arrives. Write failures surface as {@link UncheckedIOException}.
+ */
+public class CsvPairwiseSink implements PairwiseResultSink, Closeable {
+    private final Writer writer;
+    private List<Document> documents;
+    private double safeThreshold;
+    private double highThreshold;
+
+    public CsvPairwiseSink(File outputFile) throws IOException {
+        this(new BufferedWriter(new FileWriter(outputFile)));
+    }
+
+    public CsvPairwiseSink(Writer writer) {
+        this.writer = writer;
+    }
+
+    @Override
+    public void begin(List<Document> documents) {
+        this.documents = documents;
+        this.safeThreshold = PlagiarismChecker.safeThreshold();
+        this.highThreshold = PlagiarismChecker.highThreshold();
+        try {
+            ResultExporter.writeCsvHeader(writer);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void accept(int i, int j, double score) {
+        try {
+            ResultExporter.writeCsvRow(writer, documents.get(i), documents.get(j), score,
+                    PlagiarismChecker.verdictFor(score, safeThreshold, highThreshold));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void end() {
+        try {
+            writer.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        writer.close();
+    }
+}
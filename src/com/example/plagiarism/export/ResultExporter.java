@@ -8,6 +8,7 @@ import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.Writer;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.List;
@@ -42,19 +43,28 @@ public class ResultExporter {
 
     public static void exportToCSV(List<PlagiarismChecker.PairwiseResult> results, File outputFile) throws IOException {
         try (BufferedWriter writer = new BufferedWriter(new FileWriter(outputFile))) {
-            writer.write("Document A,Document B,Similarity Score,Similarity %,Verdict\n");
+            writeCsvHeader(writer);
 
             for (PlagiarismChecker.PairwiseResult result : results) {
-                writer.write(String.format("\"%s\",\"%s\",%.4f,%.2f,\"%s\"\n",
-                        escapeCSV(result.a().getTitle()),
-                        escapeCSV(result.b().getTitle()),
-                        result.score(),
-                        result.score() * 100,
-                        result.verdict()));
+                writeCsvRow(writer, result.a(), result.b(), result.score(), result.verdict());
             }
         }
     }
 
+    // Row format shared by exportToCSV and the streaming CsvPairwiseSink
+    public static void writeCsvHeader(Writer writer) throws IOException {
+        writer.write("Document A,Document B,Similarity Score,Similarity %,Verdict\n");
+    }
+
+    public static void writeCsvRow(Writer writer, Document a, Document b, double score, String verdict) throws IOException {
+        writer.write(String.format("\"%s\",\"%s\",%.4f,%.2f,\"%s\"\n",
+                escapeCSV(a.getTitle()),
+                escapeCSV(b.getTitle()),
+                score,
+                score * 100,
+                verdict));
+    }
+
     public static void exportBlockchainToJSON(List<Block> blocks, File outputFile) throws IOException {
         try (BufferedWriter writer = new BufferedWriter(new FileWriter(outputFile))) {
             writer.write("{\n");
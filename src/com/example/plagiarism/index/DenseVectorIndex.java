@@ -0,0 +1,169 @@
+package com.example.plagiarism.index;
+
+import com.example.plagiarism.AnalysisCache;
+import com.example.plagiarism.Block;
+import com.example.plagiarism.Blockchain;
+import com.example.plagiarism.Document;
+import com.example.plagiarism.config.AppConfig;
+import com.example.plagiarism.similarity.DenseKernel;
+import com.example.plagiarism.similarity.HashedTermVector;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Brute-force cosine search over hashed dense term vectors of the blocks in a
+ * {@link Blockchain}.
+ *
+ * Vectors are stored contiguously in row-major float matrices of at most 2^24 floats each
+ * (a single array would cap the index near 2^31 floats), and a query is scored against
+ * every row with {@link DenseKernel#best()}, a block of rows at a time. Unlike
+ * {@link InvertedIndex} every block is scored, and scores approximate PlagiarismChecker's
+ * cosine (hash collisions add small noise), but the cost is a predictable sequential
+ * scan that SIMD handles at memory bandwidth. Like the other chain indexes it queues new
+ * blocks and vectorizes them on the next query.
+ */
+public class DenseVectorIndex implements Blockchain.Listener {
+    private static final int ROWS_PER_BATCH = 256;
+    private static final int CHUNK_FLOATS = 1 << 24;
+
+    private final int dimensions;
+    private final DenseKernel kernel;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final PendingBlocks pending = new PendingBlocks();
+    private final List<Block> blocks = new ArrayList<>();
+    // Row r lives in chunks[r / rowsPerChunk]; only the last chunk grows
+    private final List<float[]> chunks = new ArrayList<>();
+    private final int rowsPerChunk;
+
+    // Uses dense.dimensions from AppConfig and the best available kernel
+    public DenseVectorIndex() {
+        this(AppConfig.getInstance().getInt("dense.dimensions", 1024), DenseKernel.best());
+    }
+
+    public DenseVectorIndex(int dimensions, DenseKernel kernel) {
+        this(dimensions, kernel, CHUNK_FLOATS);
+    }
+
+    // Smaller chunks let tests cover rows split across several arrays
+    DenseVectorIndex(int dimensions, DenseKernel kernel, int chunkFloats) {
+        if (dimensions <= 0) throw new IllegalArgumentException("dimensions must be positive");
+        if (chunkFloats <= 0) throw new IllegalArgumentException("chunkFloats must be positive");
+        this.dimensions = dimensions;
+        this.kernel = kernel;
+        this.rowsPerChunk = Math.max(1, chunkFloats / dimensions);
+    }
+
+    public static DenseVectorIndex attachTo(Blockchain blockchain) {
+        DenseVectorIndex index = new DenseVectorIndex();
+        synchronized (blockchain) {
+            index.chainReplaced(blockchain.getBlocks());
+            blockchain.addListener(index);
+        }
+        return index;
+    }
+
+    @Override
+    public void blockAdded(Block block) {
+        pending.add(block);
+    }
+
+    @Override
+    public void chainReplaced(List<Block> chain) {
+        pending.replace(chain);
+    }
+
+    // Vectors are computed outside the lock; only the copy into the matrix is exclusive
+    private void index(List<Block> added, boolean replaced) {
+        List<float[]> vectors = new ArrayList<>(added.size());
+        for (Block block : added) vectors.add(vectorOf(block.getDocument()));
+        lock.writeLock().lock();
+        try {
+            if (replaced) {
+                blocks.clear();
+                chunks.clear();
+            }
+            for (int b = 0; b < added.size(); b++) {
+                addLocked(added.get(b), vectors.get(b));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        pending.drain(this::index);
+        lock.readLock().lock();
+        try {
+            return blocks.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int dimensions() {
+        return dimensions;
+    }
+
+    public String kernelName() {
+        return kernel.name();
+    }
+
+    public float[] vectorOf(Document document) {
+        return HashedTermVector.of(AnalysisCache.shared().analyze(document).termFrequencies(), dimensions);
+    }
+
+    public List<InvertedIndex.SearchHit> search(Document query, int k) {
+        return search(vectorOf(query), k);
+    }
+
+    // Top-k blocks by approximate cosine, best first
+    public List<InvertedIndex.SearchHit> search(float[] query, int k) {
+        if (query.length != dimensions) throw new IllegalArgumentException("query has " + query.length + " dimensions, expected " + dimensions);
+        if (k <= 0) return List.of();
+        pending.drain(this::index);
+        TopK<InvertedIndex.SearchHit> top = new TopK<>(k);
+        float[] scores = new float[ROWS_PER_BATCH];
+        lock.readLock().lock();
+        try {
+            int rows = blocks.size();
+            for (int start = 0; start < rows; ) {
+                // Batches never straddle chunks, so the kernel's row offsets stay within one array
+                int first = start % rowsPerChunk;
+                int count = Math.min(ROWS_PER_BATCH, Math.min(rows - start, rowsPerChunk - first));
+                kernel.dotProducts(query, chunks.get(start / rowsPerChunk), first, count, scores);
+                for (int r = 0; r < count; r++) {
+                    double score = scores[r];
+                    if (top.canEnter(score)) {
+                        top.offer(new InvertedIndex.SearchHit(blocks.get(start + r), score), score);
+                    }
+                }
+                start += count;
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return top.toSortedList();
+    }
+
+    private void addLocked(Block block, float[] vector) {
+        int slot = blocks.size();
+        if (slot == Integer.MAX_VALUE) throw new IllegalStateException("Dense index is full");
+        int chunk = slot / rowsPerChunk;
+        int row = slot % rowsPerChunk;
+        if (chunk == chunks.size()) {
+            chunks.add(new float[Math.min(64, rowsPerChunk) * dimensions]);
+        }
+        float[] rows = chunks.get(chunk);
+        // rowsPerChunk * dimensions <= max(chunkFloats, dimensions), so none of this overflows
+        if ((row + 1) * dimensions > rows.length) {
+            rows = Arrays.copyOf(rows, Math.min(rowsPerChunk, 2 * (rows.length / dimensions)) * dimensions);
+            chunks.set(chunk, rows);
+        }
+        System.arraycopy(vector, 0, rows, row * dimensions, dimensions);
+        blocks.add(block);
+    }
+}
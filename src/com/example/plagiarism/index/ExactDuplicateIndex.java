@@ -0,0 +1,64 @@
+package com.example.plagiarism.index;
+
+import com.example.plagiarism.Block;
+import com.example.plagiarism.Blockchain;
+import com.example.plagiarism.Document;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Blocks grouped by the SHA-256 of their document text ({@link Document#contentHash}), for
+ * exact-duplicate lookup in constant time. Documents read from chain storage know their
+ * digest already, so indexing them does not load their text.
+ */
+public class ExactDuplicateIndex implements Blockchain.Listener {
+    private final Map<String, List<Block>> blocksByDigest = new HashMap<>();
+
+    public static ExactDuplicateIndex attachTo(Blockchain blockchain) {
+        ExactDuplicateIndex index = new ExactDuplicateIndex();
+        synchronized (blockchain) {
+            index.chainReplaced(blockchain.getBlocks());
+            blockchain.addListener(index);
+        }
+        return index;
+    }
+
+    @Override
+    public synchronized void blockAdded(Block block) {
+        blocksByDigest.computeIfAbsent(block.getDocument().contentHash(), k -> new ArrayList<>(1)).add(block);
+    }
+
+    @Override
+    public synchronized void chainReplaced(List<Block> chain) {
+        blocksByDigest.clear();
+        for (Block block : chain) {
+            blockAdded(block);
+        }
+    }
+
+    // Blocks whose text is exactly this document's text, oldest first
+    public List<Block> find(Document document) {
+        return findByDigest(document.contentHash());
+    }
+
+    public synchronized List<Block> findByDigest(String digest) {
+        List<Block> blocks = blocksByDigest.get(digest);
+        return blocks == null ? List.of() : new ArrayList<>(blocks);
+    }
+
+    /**
+     * The text of the first chain document with the same content, or the given text if
+     * none. Building documents from the returned string lets duplicates share one copy.
+     */
+    public String canonicalText(Document document) {
+        List<Block> blocks = find(document);
+        return blocks.isEmpty() ? document.getText() : blocks.get(0).getDocument().getText();
+    }
+
+    public synchronized int distinctTexts() {
+        return blocksByDigest.size();
+    }
+}
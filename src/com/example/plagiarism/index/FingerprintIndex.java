@@ -0,0 +1,152 @@
+package com.example.plagiarism.index;
+
+import com.example.plagiarism.Block;
+import com.example.plagiarism.Blockchain;
+import com.example.plagiarism.similarity.MatchedPassage;
+import com.example.plagiarism.similarity.Winnowing;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Winnowing fingerprint index over a {@link Blockchain}: fingerprint hash to the
+ * (block, character range) places it occurs. A query fingerprints the new text and
+ * returns, per matching block, the copied passages with offsets in both texts.
+ *
+ * Added blocks are only queued (see {@link PendingBlocks}) and fingerprinted by the next
+ * search, so opening a stored chain does not read every document.
+ */
+public class FingerprintIndex implements Blockchain.Listener {
+    private final int k;
+    private final int window;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Long, Postings> postings = new HashMap<>();
+    private final List<Block> blocks = new ArrayList<>();
+    private final PendingBlocks pending = new PendingBlocks();
+
+    public static class SourceMatch {
+        private final Block block;
+        private final List<MatchedPassage> passages;
+        private final int matchedChars;
+
+        public SourceMatch(Block block, List<MatchedPassage> passages, int matchedChars) {
+            this.block = block;
+            this.passages = passages;
+            this.matchedChars = matchedChars;
+        }
+
+        public Block block() { return block; }
+        public List<MatchedPassage> passages() { return passages; }
+        // Characters of the query covered by passages from this block
+        public int matchedChars() { return matchedChars; }
+    }
+
+    public FingerprintIndex() {
+        this(Winnowing.defaultK(), Winnowing.defaultWindow());
+    }
+
+    public FingerprintIndex(int k, int window) {
+        this.k = k;
+        this.window = window;
+    }
+
+    public static FingerprintIndex attachTo(Blockchain blockchain) {
+        FingerprintIndex index = new FingerprintIndex();
+        synchronized (blockchain) {
+            index.chainReplaced(blockchain.getBlocks());
+            blockchain.addListener(index);
+        }
+        return index;
+    }
+
+    @Override
+    public void blockAdded(Block block) {
+        pending.add(block);
+    }
+
+    @Override
+    public void chainReplaced(List<Block> chain) {
+        pending.replace(chain);
+    }
+
+    // Fingerprints the queued blocks outside the lock, then adds them all at once
+    private void index(List<Block> added, boolean replaced) {
+        List<List<Winnowing.Fingerprint>> fingerprints = new ArrayList<>(added.size());
+        for (Block block : added) {
+            fingerprints.add(Winnowing.fingerprints(block.getDocument().getText(), k, window));
+        }
+        lock.writeLock().lock();
+        try {
+            if (replaced) {
+                postings.clear();
+                blocks.clear();
+            }
+            for (int i = 0; i < added.size(); i++) {
+                addLocked(added.get(i), fingerprints.get(i));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Blocks sharing copied passages with the text, most matched characters first
+    public List<SourceMatch> search(String text) {
+        pending.drain(this::index);
+        Map<Integer, List<MatchedPassage>> rawBySlot = new HashMap<>();
+        List<Block> snapshot;
+        lock.readLock().lock();
+        try {
+            for (Winnowing.Fingerprint fp : Winnowing.fingerprints(text, k, window)) {
+                Postings p = postings.get(fp.hash());
+                if (p == null) continue;
+                for (int i = 0; i < p.size; i++) {
+                    int base = i * 3;
+                    rawBySlot.computeIfAbsent(p.data[base], s -> new ArrayList<>())
+                            .add(new MatchedPassage(fp.start(), fp.end(), p.data[base + 1], p.data[base + 2]));
+                }
+            }
+            snapshot = new ArrayList<>(blocks);
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        List<SourceMatch> matches = new ArrayList<>();
+        for (Map.Entry<Integer, List<MatchedPassage>> e : rawBySlot.entrySet()) {
+            List<MatchedPassage> passages = Winnowing.mergeMatches(e.getValue());
+            matches.add(new SourceMatch(snapshot.get(e.getKey()), passages, Winnowing.coveredQueryChars(passages)));
+        }
+        matches.sort(Comparator.comparingInt(SourceMatch::matchedChars).reversed());
+        return matches;
+    }
+
+    private void addLocked(Block block, List<Winnowing.Fingerprint> fps) {
+        int slot = blocks.size();
+        blocks.add(block);
+        for (Winnowing.Fingerprint fp : fps) {
+            postings.computeIfAbsent(fp.hash(), h -> new Postings()).add(slot, fp.start(), fp.end());
+        }
+    }
+
+    // Flat (slot, start, end) triples
+    private static class Postings {
+        int[] data = new int[3];
+        int size;
+
+        void add(int slot, int start, int end) {
+            int base = size * 3;
+            if (base + 3 > data.length) {
+                data = Arrays.copyOf(data, data.length * 2);
+            }
+            data[base] = slot;
+            data[base + 1] = start;
+            data[base + 2] = end;
+            size++;
+        }
+    }
+}
@@ -0,0 +1,198 @@
+package com.example.plagiarism.index;
+
+import com.example.plagiarism.AnalysisCache;
+import com.example.plagiarism.Block;
+import com.example.plagiarism.Blockchain;
+import com.example.plagiarism.Document;
+import com.example.plagiarism.similarity.SparseTermVector;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory inverted index over the documents stored in a {@link Blockchain}.
+ *
+ * Each term id maps to a posting list of (block slot, term frequency). A query walks only
+ * the posting lists of its own terms, accumulating cosine dot products for the blocks that
+ * share at least one term, so its cost follows the posting list lengths rather than the size
+ * of the chain. Scores are the same cosine values PlagiarismChecker computes. New blocks are
+ * queued and analyzed, through the shared AnalysisCache, on the next query.
+ */
+public class InvertedIndex implements Blockchain.Listener {
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final PendingBlocks pending = new PendingBlocks();
+    private final List<Postings> postingsByTerm = new ArrayList<>();
+    private final List<Block> blocks = new ArrayList<>();
+    private double[] norms = new double[64];
+
+    private final ThreadLocal<Accumulator> accumulators = ThreadLocal.withInitial(Accumulator::new);
+
+    public static class SearchHit {
+        private final Block block;
+        private final double score;
+
+        public SearchHit(Block block, double score) {
+            this.block = block;
+            this.score = score;
+        }
+
+        public Block block() { return block; }
+        public double score() { return score; }
+    }
+
+    // Indexes the current blocks and keeps following the chain as blocks are added
+    public static InvertedIndex attachTo(Blockchain blockchain) {
+        InvertedIndex index = new InvertedIndex();
+        synchronized (blockchain) {
+            index.chainReplaced(blockchain.getBlocks());
+            blockchain.addListener(index);
+        }
+        return index;
+    }
+
+    @Override
+    public void blockAdded(Block block) {
+        pending.add(block);
+    }
+
+    @Override
+    public void chainReplaced(List<Block> chain) {
+        pending.replace(chain);
+    }
+
+    // Documents are analyzed outside the lock; only the posting updates are exclusive
+    private void index(List<Block> added, boolean replaced) {
+        List<SparseTermVector> vectors = new ArrayList<>(added.size());
+        for (Block block : added) vectors.add(AnalysisCache.shared().analyze(block.getDocument()).termVector());
+        lock.writeLock().lock();
+        try {
+            if (replaced) {
+                postingsByTerm.clear();
+                blocks.clear();
+                norms = new double[Math.max(64, added.size())];
+            }
+            for (int b = 0; b < added.size(); b++) {
+                addLocked(added.get(b), vectors.get(b));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        pending.drain(this::index);
+        lock.readLock().lock();
+        try {
+            return blocks.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public List<SearchHit> search(Document query, int k) {
+        return search(AnalysisCache.shared().analyze(query).termVector(), k);
+    }
+
+    // Top-k blocks by cosine similarity, best first; blocks sharing no term are never scored
+    public List<SearchHit> search(SparseTermVector query, int k) {
+        if (k <= 0 || query.size() == 0) return List.of();
+        pending.drain(this::index);
+        double queryNorm = Math.sqrt(query.sumOfSquares());
+        Accumulator acc = accumulators.get();
+        lock.readLock().lock();
+        try {
+            acc.ensureCapacity(blocks.size());
+            for (int q = 0; q < query.size(); q++) {
+                int termId = query.idAt(q);
+                if (termId >= postingsByTerm.size()) continue;
+                Postings postings = postingsByTerm.get(termId);
+                if (postings == null) continue;
+                int queryCount = query.countAt(q);
+                for (int p = 0; p < postings.size; p++) {
+                    acc.add(postings.slots[p], queryCount * postings.freqs[p]);
+                }
+            }
+
+            TopK<SearchHit> top = new TopK<>(k);
+            for (int t = 0; t < acc.touchedCount; t++) {
+                int slot = acc.touched[t];
+                double score = acc.dots[slot] / (queryNorm * norms[slot]);
+                if (top.canEnter(score)) {
+                    top.offer(new SearchHit(blocks.get(slot), score), score);
+                }
+            }
+            return top.toSortedList();
+        } finally {
+            lock.readLock().unlock();
+            acc.reset();
+        }
+    }
+
+    private void addLocked(Block block, SparseTermVector vector) {
+        int slot = blocks.size();
+        blocks.add(block);
+        if (slot >= norms.length) {
+            norms = Arrays.copyOf(norms, norms.length * 2);
+        }
+        norms[slot] = Math.sqrt(vector.sumOfSquares());
+        for (int p = 0; p < vector.size(); p++) {
+            int termId = vector.idAt(p);
+            while (postingsByTerm.size() <= termId) {
+                postingsByTerm.add(null);
+            }
+            Postings postings = postingsByTerm.get(termId);
+            if (postings == null) {
+                postings = new Postings();
+                postingsByTerm.set(termId, postings);
+            }
+            postings.add(slot, vector.countAt(p));
+        }
+    }
+
+    private static class Postings {
+        int[] slots = new int[4];
+        int[] freqs = new int[4];
+        int size;
+
+        void add(int slot, int freq) {
+            if (size == slots.length) {
+                slots = Arrays.copyOf(slots, size * 2);
+                freqs = Arrays.copyOf(freqs, size * 2);
+            }
+            slots[size] = slot;
+            freqs[size] = freq;
+            size++;
+        }
+    }
+
+    // Per-thread dense score array; only the touched slots are cleared after a query
+    private static class Accumulator {
+        double[] dots = new double[0];
+        int[] touched = new int[0];
+        int touchedCount;
+
+        void ensureCapacity(int n) {
+            if (dots.length < n) {
+                dots = new double[n];
+                touched = new int[n];
+            }
+        }
+
+        void add(int slot, double value) {
+            if (dots[slot] == 0.0) {
+                touched[touchedCount++] = slot;
+            }
+            dots[slot] += value;
+        }
+
+        void reset() {
+            for (int t = 0; t < touchedCount; t++) {
+                dots[touched[t]] = 0.0;
+            }
+            touchedCount = 0;
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package com.example.plagiarism.index;
+
+import com.example.plagiarism.similarity.MinHash;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Banded locality-sensitive hashing over MinHash signatures.
+ *
+ * A signature of {@code bands * rows} values is cut into bands; two documents become a
+ * candidate pair when any band matches exactly. The probability of that for documents with
+ * Jaccard similarity s is 1 - (1 - s^rows)^bands, so more bands raise recall and more rows
+ * raise precision. The threshold where the curve is steepest is about (1/bands)^(1/rows).
+ */
+public class LshIndex {
+    private final int bands;
+    private final int rows;
+    private final List<Map<Long, List<Integer>>> buckets;
+
+    public LshIndex(int bands, int rows) {
+        if (bands <= 0 || rows <= 0) throw new IllegalArgumentException("bands and rows must be positive");
+        this.bands = bands;
+        this.rows = rows;
+        this.buckets = new ArrayList<>(bands);
+        for (int b = 0; b < bands; b++) {
+            buckets.add(new HashMap<>());
+        }
+    }
+
+    public int bands() {
+        return bands;
+    }
+
+    public int rows() {
+        return rows;
+    }
+
+    public int signatureLength() {
+        return bands * rows;
+    }
+
+    public double approximateThreshold() {
+        return Math.pow(1.0 / bands, 1.0 / rows);
+    }
+
+    public void add(int docId, long[] signature) {
+        checkLength(signature);
+        for (int b = 0; b < bands; b++) {
+            buckets.get(b).computeIfAbsent(bandKey(signature, b), k -> new ArrayList<>(2)).add(docId);
+        }
+    }
+
+    // Ids of indexed documents sharing at least one band with the signature
+    public Set<Integer> query(long[] signature) {
+        checkLength(signature);
+        Set<Integer> result = new HashSet<>();
+        for (int b = 0; b < bands; b++) {
+            List<Integer> bucket = buckets.get(b).get(bandKey(signature, b));
+            if (bucket != null) result.addAll(bucket);
+        }
+        return result;
+    }
+
+    // All candidate pairs as (lower id << 32 | higher id), sorted ascending
+    public long[] candidatePairs() {
+        Set<Long> pairs = new HashSet<>();
+        for (Map<Long, List<Integer>> band : buckets) {
+            for (List<Integer> bucket : band.values()) {
+                for (int x = 0; x < bucket.size(); x++) {
+                    for (int y = x + 1; y < bucket.size(); y++) {
+                        int i = bucket.get(x);
+                        int j = bucket.get(y);
+                        if (i == j) continue;
+                        pairs.add(i < j ? encodePair(i, j) : encodePair(j, i));
+                    }
+                }
+            }
+        }
+        long[] sorted = new long[pairs.size()];
+        int k = 0;
+        for (long p : pairs) sorted[k++] = p;
+        Arrays.sort(sorted);
+        return sorted;
+    }
+
+    public static long encodePair(int i, int j) {
+        return ((long) i << 32) | (j & 0xffffffffL);
+    }
+
+    public static int firstOf(long pair) {
+        return (int) (pair >>> 32);
+    }
+
+    public static int secondOf(long pair) {
+        return (int) pair;
+    }
+
+    private long bandKey(long[] signature, int band) {
+        long h = band;
+        int start = band * rows;
+        for (int r = start; r < start + rows; r++) {
+            h = MinHash.mix(h * 31 + signature[r]);
+        }
+        return h;
+    }
+
+    private void checkLength(long[] signature) {
+        if (signature.length != signatureLength()) {
+            throw new IllegalArgumentException("Expected signature of length " + signatureLength()
+                    + " but got " + signature.length);
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.example.plagiarism.index;
+
+import com.example.plagiarism.Block;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Blocks a chain listener has been told about but not indexed yet. Queueing a block costs
+ * nothing under the chain lock and reads no text, so restoring a large chain does not load
+ * every document; the index reads the queued texts when it is next queried.
+ */
+class PendingBlocks {
+    interface Indexer {
+        // replaced: drop everything indexed so far before adding these blocks
+        void index(List<Block> blocks, boolean replaced);
+    }
+
+    private final Object drainLock = new Object();
+    private List<Block> pending = new ArrayList<>();
+    private boolean replaced;
+
+    synchronized void add(Block block) {
+        pending.add(block);
+    }
+
+    synchronized void replace(List<Block> chain) {
+        pending = new ArrayList<>(chain);
+        replaced = true;
+    }
+
+    /**
+     * Hands the queued blocks to the indexer. Drains run one at a time, so blocks are indexed
+     * in chain order; if the indexer fails, its blocks are queued again.
+     */
+    void drain(Indexer indexer) {
+        synchronized (drainLock) {
+            List<Block> batch;
+            boolean reset;
+            synchronized (this) {
+                if (pending.isEmpty() && !replaced) return;
+                batch = pending;
+                reset = replaced;
+                pending = new ArrayList<>();
+                replaced = false;
+            }
+            try {
+                indexer.index(batch, reset);
+            } catch (RuntimeException e) {
+                synchronized (this) {
+                    if (!replaced) {
+                        batch.addAll(pending);
+                        pending = batch;
+                        replaced = reset;
+                    }
+                }
+                throw e;
+            }
+        }
+    }
+}
@@ -0,0 +1,185 @@
+package com.example.plagiarism.index;
+
+import com.example.plagiarism.AnalysisCache;
+import com.example.plagiarism.Block;
+import com.example.plagiarism.Blockchain;
+import com.example.plagiarism.Document;
+import com.example.plagiarism.config.AppConfig;
+import com.example.plagiarism.similarity.SimHash;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Near-duplicate lookup by SimHash within Hamming distance k.
+ *
+ * The 64 bits are split into k + 1 contiguous blocks and there is one table per block,
+ * keyed by that block's bits (the block-permutation scheme of Manku et al.). By the
+ * pigeonhole principle, two hashes that differ in at most k bits agree exactly on at least
+ * one block, so a query looks up k + 1 buckets and checks the Hamming distance of their
+ * few entries only.
+ *
+ * Added blocks are only queued (see {@link PendingBlocks}); their texts are hashed by the
+ * next query, so opening a stored chain does not read every document.
+ */
+public class SimHashIndex implements Blockchain.Listener {
+    private final int maxDistance;
+    private final int[] blockShift;
+    private final long[] blockMask;
+    private final List<Map<Long, Bucket>> tables;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final List<Block> blocks = new ArrayList<>();
+    private final PendingBlocks pending = new PendingBlocks();
+    private long[] hashes = new long[64];
+
+    public static class NearDuplicate {
+        private final Block block;
+        private final int distance;
+
+        public NearDuplicate(Block block, int distance) {
+            this.block = block;
+            this.distance = distance;
+        }
+
+        public Block block() { return block; }
+        public int distance() { return distance; }
+    }
+
+    // Uses simhash.max_distance from AppConfig
+    public SimHashIndex() {
+        this(AppConfig.getInstance().getInt("simhash.max_distance", 3));
+    }
+
+    public SimHashIndex(int maxDistance) {
+        if (maxDistance < 0 || maxDistance > 63) throw new IllegalArgumentException("maxDistance must be in 0..63");
+        this.maxDistance = maxDistance;
+        int tableCount = maxDistance + 1;
+        this.blockShift = new int[tableCount];
+        this.blockMask = new long[tableCount];
+        this.tables = new ArrayList<>(tableCount);
+        int start = 0;
+        for (int t = 0; t < tableCount; t++) {
+            int width = 64 / tableCount + (t < 64 % tableCount ? 1 : 0);
+            blockShift[t] = start;
+            blockMask[t] = width == 64 ? -1L : (1L << width) - 1;
+            start += width;
+            tables.add(new HashMap<>());
+        }
+    }
+
+    public static SimHashIndex attachTo(Blockchain blockchain) {
+        SimHashIndex index = new SimHashIndex();
+        synchronized (blockchain) {
+            index.chainReplaced(blockchain.getBlocks());
+            blockchain.addListener(index);
+        }
+        return index;
+    }
+
+    public static long simHashOf(Document document) {
+        return SimHash.of(AnalysisCache.shared().analyze(document).termFrequencies());
+    }
+
+    @Override
+    public void blockAdded(Block block) {
+        pending.add(block);
+    }
+
+    @Override
+    public void chainReplaced(List<Block> chain) {
+        pending.replace(chain);
+    }
+
+    // Hashes the queued blocks outside the lock, then adds them all at once
+    private void index(List<Block> added, boolean replaced) {
+        List<Block> indexed = new ArrayList<>(added.size());
+        long[] addedHashes = new long[added.size()];
+        for (Block block : added) {
+            Document d = block.getDocument();
+            if (d.getText().isBlank()) continue;
+            addedHashes[indexed.size()] = simHashOf(d);
+            indexed.add(block);
+        }
+        lock.writeLock().lock();
+        try {
+            if (replaced) {
+                blocks.clear();
+                for (Map<Long, Bucket> table : tables) table.clear();
+            }
+            for (int i = 0; i < indexed.size(); i++) {
+                addLocked(indexed.get(i), addedHashes[i]);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int maxDistance() {
+        return maxDistance;
+    }
+
+    public List<NearDuplicate> findNear(Document document) {
+        return findNear(simHashOf(document));
+    }
+
+    // All indexed blocks within maxDistance bits of the hash, closest first
+    public List<NearDuplicate> findNear(long hash) {
+        pending.drain(this::index);
+        List<NearDuplicate> result = new ArrayList<>();
+        Set<Integer> seen = new HashSet<>();
+        lock.readLock().lock();
+        try {
+            for (int t = 0; t < tables.size(); t++) {
+                Bucket bucket = tables.get(t).get(blockKey(hash, t));
+                if (bucket == null) continue;
+                for (int k = 0; k < bucket.size; k++) {
+                    int slot = bucket.slots[k];
+                    if (!seen.add(slot)) continue;
+                    int distance = SimHash.hammingDistance(hash, hashes[slot]);
+                    if (distance <= maxDistance) {
+                        result.add(new NearDuplicate(blocks.get(slot), distance));
+                    }
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        result.sort(Comparator.comparingInt(NearDuplicate::distance));
+        return result;
+    }
+
+    private void addLocked(Block block, long hash) {
+        int slot = blocks.size();
+        blocks.add(block);
+        if (slot >= hashes.length) {
+            hashes = Arrays.copyOf(hashes, hashes.length * 2);
+        }
+        hashes[slot] = hash;
+        for (int t = 0; t < tables.size(); t++) {
+            tables.get(t).computeIfAbsent(blockKey(hash, t), k -> new Bucket()).add(slot);
+        }
+    }
+
+    private long blockKey(long hash, int table) {
+        return (hash >>> blockShift[table]) & blockMask[table];
+    }
+
+    // Slots of the blocks in one table bucket; grows by doubling, so adding is amortized O(1)
+    private static class Bucket {
+        private int[] slots = new int[1];
+        private int size;
+
+        void add(int slot) {
+            if (size == slots.length) slots = Arrays.copyOf(slots, size * 2);
+            slots[size++] = slot;
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package com.example.plagiarism.index;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * The K highest-scoring items seen so far, kept in a bounded array min-heap.
+ *
+ * The root is the K-th best score, so a full heap rejects a candidate with a single
+ * comparison, and callers with a cheap upper bound on a candidate's score can skip the
+ * exact computation when {@link #canEnter} is false. Memory is K entries however many
+ * candidates are offered. Ties with the K-th best keep the earlier item.
+ */
+public class TopK<T> {
+    private final int k;
+    private final double[] scores;
+    private final Object[] items;
+    private int size;
+
+    public TopK(int k) {
+        if (k < 0) throw new IllegalArgumentException("k must not be negative");
+        this.k = k;
+        this.scores = new double[k];
+        this.items = new Object[k];
+    }
+
+    // Returns whether the item was kept
+    public boolean offer(T item, double score) {
+        if (size < k) {
+            scores[size] = score;
+            items[size] = item;
+            siftUp(size++);
+            return true;
+        }
+        if (k == 0 || !(score > scores[0])) return false;
+        scores[0] = score;
+        items[0] = item;
+        siftDown(0);
+        return true;
+    }
+
+    // False when a candidate scoring at most upperBound could not be kept
+    public boolean canEnter(double upperBound) {
+        return size < k || (k > 0 && upperBound > scores[0]);
+    }
+
+    public boolean isFull() {
+        return size == k;
+    }
+
+    // Score to beat: the K-th best so far, or negative infinity while fewer than K are held
+    public double threshold() {
+        return size < k ? Double.NEGATIVE_INFINITY : scores[0];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    // Best first
+    @SuppressWarnings("unchecked")
+    public List<T> toSortedList() {
+        Integer[] order = new Integer[size];
+        for (int i = 0; i < size; i++) order[i] = i;
+        Arrays.sort(order, Comparator.comparingDouble((Integer i) -> scores[i]).reversed());
+        List<T> sorted = new ArrayList<>(size);
+        for (int i : order) sorted.add((T) items[i]);
+        return sorted;
+    }
+
+    private void siftUp(int i) {
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (scores[parent] <= scores[i]) break;
+            swap(i, parent);
+            i = parent;
+        }
+    }
+
+    private void siftDown(int i) {
+        while (true) {
+            int left = 2 * i + 1;
+            if (left >= size) break;
+            int smallest = left + 1 < size && scores[left + 1] < scores[left] ? left + 1 : left;
+            if (scores[i] <= scores[smallest]) break;
+            swap(i, smallest);
+            i = smallest;
+        }
+    }
+
+    private void swap(int a, int b) {
+        double s = scores[a];
+        scores[a] = scores[b];
+        scores[b] = s;
+        Object o = items[a];
+        items[a] = items[b];
+        items[b] = o;
+    }
+}
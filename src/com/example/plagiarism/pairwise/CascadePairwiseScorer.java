@@ -0,0 +1,176 @@
+package com.example.plagiarism.pairwise;
+
+import com.example.plagiarism.AnalyzedDocument;
+import com.example.plagiarism.Document;
+import com.example.plagiarism.PlagiarismChecker;
+import com.example.plagiarism.config.AppConfig;
+import com.example.plagiarism.similarity.MinHash;
+import com.example.plagiarism.similarity.SimilarityAlgorithm;
+import com.example.plagiarism.similarity.SimilarityAlgorithms;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * All-pairs scoring as a cascade of increasingly expensive stages; a pair only reaches
+ * the next stage if it clears the current stage's bar.
+ *
+ * 1) size: the algorithm's {@link SimilarityAlgorithm#upperBound}, which never
+ *    underestimates, so this stage drops no pair that could reach its bar
+ * 2) minhash: MinHash estimate of the Jaccard similarity of the documents' term sets
+ *    (n-gram sets for n-gram); a heuristic, hence a lower default bar
+ * 3) exact: the algorithm itself, through its bounded score, kept if at least the bar
+ *
+ * Bars come from cascade.size.min, cascade.minhash.min and cascade.exact.min (0.0 - 1.0);
+ * size and exact default to 0.3, the default safe verdict threshold, so every pair left out
+ * by those stages is one the full comparison would call "Safe". Pass counts are kept per
+ * stage; time spent is estimated from one pair in {@value #TIMING_SAMPLE}, so the clock is
+ * not read several times for every pair.
+ */
+public class CascadePairwiseScorer {
+    private static final int TIMING_SAMPLE = 64; // power of two
+    private final String algorithmName;
+    private final double sizeBar;
+    private final double minHashBar;
+    private final double exactBar;
+    private final int minHashSize;
+
+    public static class StageStats {
+        private final String name;
+        private final double bar;
+        private long evaluated;
+        private long passed;
+        private long timed;
+        private long timedNanos;
+
+        public StageStats(String name, double bar) {
+            this.name = name;
+            this.bar = bar;
+        }
+
+        public String name() { return name; }
+        public double bar() { return bar; }
+        public long evaluated() { return evaluated; }
+        public long passed() { return passed; }
+
+        // Estimated from the timed sample of the pairs this stage evaluated
+        public long nanos() {
+            return timed == 0 ? 0 : Math.round((double) timedNanos * evaluated / timed);
+        }
+
+        public double passRate() {
+            return evaluated == 0 ? 0.0 : (double) passed / evaluated;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%-8s bar %.2f  passed %d / %d (%.1f%%)  %.1f ms",
+                    name, bar, passed, evaluated, passRate() * 100.0, nanos() / 1_000_000.0);
+        }
+    }
+
+    public static class Result {
+        private final List<PlagiarismChecker.PairwiseResult> pairs;
+        private final List<StageStats> stages;
+
+        public Result(List<PlagiarismChecker.PairwiseResult> pairs, List<StageStats> stages) {
+            this.pairs = pairs;
+            this.stages = stages;
+        }
+
+        public List<PlagiarismChecker.PairwiseResult> pairs() { return pairs; }
+        public List<StageStats> stages() { return stages; }
+
+        // One line per stage, for tuning the bars
+        public String report() {
+            StringBuilder sb = new StringBuilder();
+            for (StageStats stage : stages) {
+                sb.append(stage).append(System.lineSeparator());
+            }
+            return sb.toString();
+        }
+    }
+
+    // Uses the cascade.* bars from AppConfig
+    public CascadePairwiseScorer(String algorithmName) {
+        AppConfig config = AppConfig.getInstance();
+        double safe = PlagiarismChecker.safeThreshold() / 100.0;
+        this.algorithmName = algorithmName;
+        this.sizeBar = config.getDouble("cascade.size.min", safe);
+        this.minHashBar = config.getDouble("cascade.minhash.min", safe / 2.0);
+        this.exactBar = config.getDouble("cascade.exact.min", safe);
+        this.minHashSize = Math.max(1, config.getInt("cascade.minhash.hashes", 64));
+    }
+
+    public CascadePairwiseScorer(String algorithmName, double sizeBar, double minHashBar, double exactBar, int minHashSize) {
+        this.algorithmName = algorithmName;
+        this.sizeBar = sizeBar;
+        this.minHashBar = minHashBar;
+        this.exactBar = exactBar;
+        this.minHashSize = Math.max(1, minHashSize);
+    }
+
+    public Result run(List<Document> documents) {
+        return run(documents, SimilarityAlgorithms.forName(algorithmName));
+    }
+
+    private <F extends Serializable> Result run(List<Document> documents, SimilarityAlgorithm<F> algorithm) {
+        List<AnalyzedDocument> analyzed = PlagiarismChecker.analyzeAll(documents);
+        int n = analyzed.size();
+        int shingleSize = algorithm.shingleSize();
+        MinHash minHash = new MinHash(minHashSize, 0x5eed_1234L);
+
+        List<F> features = new ArrayList<>(n);
+        long[][] sketches = new long[n][];
+        for (int i = 0; i < n; i++) {
+            AnalyzedDocument d = analyzed.get(i);
+            features.add(d.features(algorithm));
+            sketches[i] = shingleSize > 0 ? minHash.signatureOfHashes(d.ngramHashes(shingleSize)) : minHash.signature(d.termSet());
+        }
+
+        StageStats size = new StageStats("size", sizeBar);
+        StageStats sketch = new StageStats("minhash", minHashBar);
+        StageStats exact = new StageStats("exact", exactBar);
+        double safeThreshold = PlagiarismChecker.safeThreshold();
+        double highThreshold = PlagiarismChecker.highThreshold();
+        List<PlagiarismChecker.PairwiseResult> results = new ArrayList<>();
+        long pair = 0;
+        for (int i = 0; i < n; i++) {
+            F fi = features.get(i);
+            for (int j = i + 1; j < n; j++) {
+                F fj = features.get(j);
+                boolean timed = (pair++ & (TIMING_SAMPLE - 1)) == 0;
+
+                long start = timed ? System.nanoTime() : 0;
+                boolean pass = algorithm.upperBound(fi, fj) >= sizeBar;
+                long afterSize = timed ? System.nanoTime() : 0;
+                record(size, pass, timed, afterSize - start);
+                if (!pass) continue;
+
+                pass = MinHash.estimateJaccard(sketches[i], sketches[j]) >= minHashBar;
+                long afterSketch = timed ? System.nanoTime() : 0;
+                record(sketch, pass, timed, afterSketch - afterSize);
+                if (!pass) continue;
+
+                double score = algorithm.score(fi, fj, exactBar);
+                pass = score >= exactBar;
+                record(exact, pass, timed, timed ? System.nanoTime() - afterSketch : 0);
+                if (pass) {
+                    results.add(new PlagiarismChecker.PairwiseResult(documents.get(i), documents.get(j), score,
+                            PlagiarismChecker.verdictFor(score, safeThreshold, highThreshold)));
+                }
+            }
+        }
+        return new Result(results, List.of(size, sketch, exact));
+    }
+
+    private static void record(StageStats stage, boolean passed, boolean timed, long nanos) {
+        stage.evaluated++;
+        if (passed) stage.passed++;
+        if (timed) {
+            stage.timed++;
+            stage.timedNanos += nanos;
+        }
+    }
+}
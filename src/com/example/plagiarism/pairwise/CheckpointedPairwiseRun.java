@@ -0,0 +1,248 @@
+package com.example.plagiarism.pairwise;
+
+import com.example.plagiarism.AnalyzedDocument;
+import com.example.plagiarism.Document;
+import com.example.plagiarism.config.AppConfig;
+import com.example.plagiarism.similarity.SimilarityAlgorithm;
+import com.example.plagiarism.similarity.SimilarityAlgorithms;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.zip.CRC32;
+
+/**
+ * A full pairwise run that survives restarts.
+ *
+ * Scores go into a file-backed {@link TriangularScoreMatrix} in the run directory, tile by
+ * tile as in {@link ParallelPairwiseEngine}. A worker marks a tile in an atomic bitmap once
+ * all of its scores are written and never waits on I/O. A background thread periodically
+ * snapshots the bitmap, forces the matrix to disk and only then atomically replaces the
+ * checkpoint file, so every tile the checkpoint lists as done has its scores on disk.
+ *
+ * Running again with the same directory resumes: the checkpoint records a fingerprint of
+ * the documents, algorithm and tiling, a mismatch is rejected, and completed tiles are
+ * skipped.
+ */
+public class CheckpointedPairwiseRun {
+    private static final int MAGIC = 0x50434B50; // "PCKP"
+    private static final int VERSION = 1;
+    static final String MATRIX_FILE = "scores.psm";
+    static final String CHECKPOINT_FILE = "progress.ckpt";
+
+    private final List<Document> documents;
+    private final String algorithmName;
+    private final Path directory;
+    private final Duration interval;
+    private final AtomicInteger completedTiles = new AtomicInteger();
+    private int resumedTiles;
+    private int totalTiles;
+
+    // Checkpoints every pairwise.checkpoint.interval_seconds from AppConfig
+    public CheckpointedPairwiseRun(List<Document> documents, String algorithmName, Path directory) {
+        this(documents, algorithmName, directory,
+                Duration.ofSeconds(Math.max(1, AppConfig.getInstance().getInt("pairwise.checkpoint.interval_seconds", 30))));
+    }
+
+    public CheckpointedPairwiseRun(List<Document> documents, String algorithmName, Path directory, Duration interval) {
+        this.documents = documents;
+        this.algorithmName = algorithmName;
+        this.directory = directory;
+        this.interval = interval;
+    }
+
+    // Runs or resumes to completion; the caller closes the returned matrix
+    public TriangularScoreMatrix run() throws IOException {
+        Files.createDirectories(directory);
+        try (ParallelPairwiseEngine engine = ParallelPairwiseEngine.shared()) {
+            int n = documents.size();
+            int[][] tiles = engine.tiles(n);
+            int[] tileRows = tiles[0];
+            int[] tileCols = tiles[1];
+            int tileSize = engine.tileSize();
+            totalTiles = tileRows.length;
+
+            AnalyzedDocument[] analyzed = engine.analyzeAll(documents);
+            byte[] fingerprint = fingerprint(analyzed, tileSize);
+            AtomicLongArray done = new AtomicLongArray((totalTiles + 63) >>> 6);
+            TriangularScoreMatrix matrix = openOrCreate(n, fingerprint, done);
+            resumedTiles = countDone(done);
+            completedTiles.set(resumedTiles);
+
+            SimilarityAlgorithm<?> algorithm = SimilarityAlgorithms.forName(algorithmName);
+            ScheduledExecutorService checkpointer = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "pairwise-checkpoint");
+                t.setDaemon(true);
+                return t;
+            });
+            try {
+                checkpointer.scheduleWithFixedDelay(() -> checkpointQuietly(matrix, fingerprint, done),
+                        interval.toMillis(), interval.toMillis(), TimeUnit.MILLISECONDS);
+                engine.parallelFor(0, n, 4, i -> analyzed[i].features(algorithm));
+                engine.parallelFor(0, totalTiles, 1, tile -> {
+                    if (isDone(done, tile)) return;
+                    int rowStart = tileRows[tile] * tileSize;
+                    int rowEnd = Math.min(n, rowStart + tileSize);
+                    int colStart = tileCols[tile] * tileSize;
+                    int colEnd = Math.min(n, colStart + tileSize);
+                    for (int i = rowStart; i < rowEnd; i++) {
+                        for (int j = Math.max(i + 1, colStart); j < colEnd; j++) {
+                            matrix.set(i, j, (float) algorithm.compare(analyzed[i], analyzed[j]));
+                        }
+                    }
+                    done.accumulateAndGet(tile >>> 6, 1L << (tile & 63), (a, b) -> a | b);
+                    completedTiles.incrementAndGet();
+                });
+            } catch (RuntimeException e) {
+                matrix.close();
+                throw e;
+            } finally {
+                checkpointer.shutdown();
+                try {
+                    checkpointer.awaitTermination(1, TimeUnit.MINUTES);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            writeCheckpoint(matrix, fingerprint, done);
+            completedTiles.set(countDone(done));
+            return matrix;
+        }
+    }
+
+    public int totalTiles() {
+        return totalTiles;
+    }
+
+    // Tiles found complete in the checkpoint when the run started
+    public int resumedTiles() {
+        return resumedTiles;
+    }
+
+    // Including resumed ones; may be read while the run is in progress
+    public int completedTiles() {
+        return completedTiles.get();
+    }
+
+    private TriangularScoreMatrix openOrCreate(int n, byte[] fingerprint, AtomicLongArray done) throws IOException {
+        Path matrixFile = directory.resolve(MATRIX_FILE);
+        Path checkpointFile = directory.resolve(CHECKPOINT_FILE);
+        if (Files.exists(checkpointFile) && Files.exists(matrixFile)) {
+            readCheckpoint(checkpointFile, fingerprint, done);
+            TriangularScoreMatrix matrix = TriangularScoreMatrix.open(matrixFile);
+            if (matrix.documentCount() != n) {
+                matrix.close();
+                throw new IOException("Score matrix holds " + matrix.documentCount() + " documents, expected " + n);
+            }
+            return matrix;
+        }
+        Files.deleteIfExists(checkpointFile);
+        return TriangularScoreMatrix.create(matrixFile, n);
+    }
+
+    private void checkpointQuietly(TriangularScoreMatrix matrix, byte[] fingerprint, AtomicLongArray done) {
+        try {
+            writeCheckpoint(matrix, fingerprint, done);
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Failed to write pairwise checkpoint: " + e.getMessage());
+        }
+    }
+
+    // Snapshot first, then force: every tile in the snapshot finished writing before the force
+    private synchronized void writeCheckpoint(TriangularScoreMatrix matrix, byte[] fingerprint, AtomicLongArray done) throws IOException {
+        long[] snapshot = new long[done.length()];
+        for (int w = 0; w < snapshot.length; w++) snapshot[w] = done.get(w);
+        matrix.force();
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeInt(fingerprint.length);
+        out.write(fingerprint);
+        out.writeInt(totalTiles);
+        out.writeInt(snapshot.length);
+        for (long word : snapshot) out.writeLong(word);
+        out.flush();
+        CRC32 crc = new CRC32();
+        crc.update(bytes.toByteArray());
+        out.writeLong(crc.getValue());
+        out.flush();
+
+        // Write and sync a temporary file, then rename it over the old checkpoint
+        Path target = directory.resolve(CHECKPOINT_FILE);
+        Path temp = directory.resolve(CHECKPOINT_FILE + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.wrap(bytes.toByteArray());
+            while (buffer.hasRemaining()) channel.write(buffer);
+            channel.force(true);
+        }
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private void readCheckpoint(Path file, byte[] fingerprint, AtomicLongArray done) throws IOException {
+        byte[] content = Files.readAllBytes(file);
+        if (content.length < Long.BYTES) throw new IOException("Checkpoint is corrupt: " + file);
+        CRC32 crc = new CRC32();
+        crc.update(content, 0, content.length - Long.BYTES);
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(content))) {
+            if (in.readInt() != MAGIC) throw new IOException("Not a pairwise checkpoint: " + file);
+            if (in.readInt() != VERSION) throw new IOException("Unsupported checkpoint version in " + file);
+            byte[] stored = new byte[in.readInt()];
+            in.readFully(stored);
+            int tiles = in.readInt();
+            long[] words = new long[in.readInt()];
+            for (int w = 0; w < words.length; w++) words[w] = in.readLong();
+            if (in.readLong() != crc.getValue()) throw new IOException("Checkpoint is corrupt: " + file);
+            if (!Arrays.equals(stored, fingerprint) || tiles != totalTiles || words.length != done.length()) {
+                throw new IOException("Checkpoint in " + directory
+                        + " was written for different documents, algorithm or tiling; use a new directory");
+            }
+            for (int w = 0; w < words.length; w++) done.set(w, words[w]);
+        }
+    }
+
+    private byte[] fingerprint(AnalyzedDocument[] analyzed, int tileSize) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(SimilarityAlgorithms.forName(algorithmName).name().getBytes(StandardCharsets.UTF_8));
+            digest.update(ByteBuffer.allocate(8).putInt(analyzed.length).putInt(tileSize).array());
+            for (AnalyzedDocument d : analyzed) {
+                digest.update(d.contentHash().getBytes(StandardCharsets.UTF_8));
+            }
+            return digest.digest();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private static boolean isDone(AtomicLongArray done, int tile) {
+        return (done.get(tile >>> 6) & (1L << (tile & 63))) != 0;
+    }
+
+    private static int countDone(AtomicLongArray done) {
+        int count = 0;
+        for (int w = 0; w < done.length(); w++) count += Long.bitCount(done.get(w));
+        return count;
+    }
+}
@@ -0,0 +1,32 @@
+package com.example.plagiarism.pairwise;
+
+import com.example.plagiarism.Document;
+import com.example.plagiarism.PlagiarismChecker;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Materializes every pair, as the list-returning checkPairwise methods do
+public class CollectingSink implements PairwiseResultSink {
+    private final List<PlagiarismChecker.PairwiseResult> results = new ArrayList<>();
+    private List<Document> documents;
+    private double safeThreshold;
+    private double highThreshold;
+
+    @Override
+    public void begin(List<Document> documents) {
+        this.documents = documents;
+        this.safeThreshold = PlagiarismChecker.safeThreshold();
+        this.highThreshold = PlagiarismChecker.highThreshold();
+    }
+
+    @Override
+    public void accept(int i, int j, double score) {
+        results.add(new PlagiarismChecker.PairwiseResult(documents.get(i), documents.get(j), score,
+                PlagiarismChecker.verdictFor(score, safeThreshold, highThreshold)));
+    }
+
+    public List<PlagiarismChecker.PairwiseResult> results() {
+        return results;
+    }
+}
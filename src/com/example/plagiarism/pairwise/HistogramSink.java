@@ -0,0 +1,47 @@
+package com.example.plagiarism.pairwise;
+
+import java.util.Arrays;
+
+// Pair counts per equal-width score bin over [0, 1]; a score of exactly 1.0 falls in the last bin
+public class HistogramSink implements PairwiseResultSink {
+    private final long[] counts;
+    private long total;
+
+    public HistogramSink(int bins) {
+        if (bins <= 0) throw new IllegalArgumentException("bins must be positive");
+        this.counts = new long[bins];
+    }
+
+    @Override
+    public void accept(int i, int j, double score) {
+        int bin = (int) (score * counts.length);
+        counts[Math.max(0, Math.min(counts.length - 1, bin))]++;
+        total++;
+    }
+
+    public int bins() {
+        return counts.length;
+    }
+
+    public long count(int bin) {
+        return counts[bin];
+    }
+
+    public long[] counts() {
+        return Arrays.copyOf(counts, counts.length);
+    }
+
+    public long total() {
+        return total;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        for (int b = 0; b < counts.length; b++) {
+            sb.append(String.format("[%.2f, %.2f%s %d%n", (double) b / counts.length, (double) (b + 1) / counts.length,
+                    b == counts.length - 1 ? "]" : ")", counts[b]));
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,114 @@
+package com.example.plagiarism.pairwise;
+
+import com.example.plagiarism.AnalyzedDocument;
+import com.example.plagiarism.Document;
+import com.example.plagiarism.similarity.SimilarityAlgorithm;
+import com.example.plagiarism.similarity.SimilarityAlgorithms;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Keeps an analyzed corpus and its {@link TriangularScoreMatrix} and, when a batch of M
+ * documents arrives on top of N, scores only the M x N cross pairs and the M x (M - 1) / 2
+ * pairs within the batch. In the matrix's row-major lower triangle these are exactly the M
+ * new rows, so nothing already stored moves or is recomputed.
+ *
+ * Rows are scored in parallel on a {@link ParallelPairwiseEngine}'s pool. An optional sink
+ * receives only the new pairs, one row at a time under its monitor.
+ */
+public class IncrementalPairwiseScorer {
+    private final SimilarityAlgorithm<?> algorithm;
+    private final TriangularScoreMatrix store;
+    private final List<Document> documents = new ArrayList<>();
+    private final List<AnalyzedDocument> analyzed = new ArrayList<>();
+
+    // Starts from an empty store
+    public IncrementalPairwiseScorer(String algorithmName, TriangularScoreMatrix store) {
+        this(algorithmName, store, List.of());
+    }
+
+    /**
+     * Resumes over documents whose scores are already in the store, e.g. a matrix file
+     * reopened with {@link TriangularScoreMatrix#open}; they must be given in store order.
+     */
+    public IncrementalPairwiseScorer(String algorithmName, TriangularScoreMatrix store, List<Document> scoredDocuments) {
+        if (store.documentCount() != scoredDocuments.size()) {
+            throw new IllegalArgumentException("Store holds " + store.documentCount() + " documents, got "
+                    + scoredDocuments.size());
+        }
+        this.algorithm = SimilarityAlgorithms.forName(algorithmName);
+        this.store = store;
+        documents.addAll(scoredDocuments);
+        if (!scoredDocuments.isEmpty()) {
+            try (ParallelPairwiseEngine engine = ParallelPairwiseEngine.shared()) {
+                Collections.addAll(analyzed, engine.analyzeAll(scoredDocuments));
+            }
+        }
+    }
+
+    public List<Document> documents() {
+        return Collections.unmodifiableList(documents);
+    }
+
+    public TriangularScoreMatrix store() {
+        return store;
+    }
+
+    public long addDocuments(List<Document> batch) throws IOException {
+        return addDocuments(batch, null);
+    }
+
+    /**
+     * Returns the number of pairs scored, M x N + M x (M - 1) / 2. The store counts the new
+     * documents only once all their rows are on disk; if scoring fails, the scorer and the
+     * store are rolled back to the documents they held before.
+     */
+    public long addDocuments(List<Document> batch, PairwiseResultSink newPairs) throws IOException {
+        if (batch.isEmpty()) return 0;
+        int oldCount = documents.size();
+        int newCount = oldCount + batch.size();
+        store.grow(newCount);
+        try {
+            documents.addAll(batch);
+            scoreRows(batch, oldCount, newCount, newPairs);
+        } catch (RuntimeException e) {
+            documents.subList(oldCount, documents.size()).clear();
+            if (analyzed.size() > oldCount) analyzed.subList(oldCount, analyzed.size()).clear();
+            store.truncate(oldCount);
+            throw e;
+        }
+        store.commitDocumentCount();
+        long m = batch.size();
+        return m * oldCount + m * (m - 1) / 2;
+    }
+
+    private void scoreRows(List<Document> batch, int oldCount, int newCount, PairwiseResultSink newPairs) {
+        try (ParallelPairwiseEngine engine = ParallelPairwiseEngine.shared()) {
+            AnalyzedDocument[] batchAnalyzed = engine.analyzeAll(batch);
+            Collections.addAll(analyzed, batchAnalyzed);
+            engine.parallelFor(oldCount, newCount, 4, i -> analyzed.get(i).features(algorithm));
+
+            List<Document> snapshot = Collections.unmodifiableList(new ArrayList<>(documents));
+            if (newPairs != null) newPairs.begin(snapshot);
+            engine.parallelFor(oldCount, newCount, 1, i -> {
+                AnalyzedDocument row = analyzed.get(i);
+                double[] scores = new double[i];
+                for (int j = 0; j < i; j++) {
+                    scores[j] = algorithm.compare(analyzed.get(j), row);
+                    store.set(i, j, (float) scores[j]);
+                }
+                if (newPairs != null) {
+                    synchronized (newPairs) {
+                        for (int j = 0; j < i; j++) {
+                            newPairs.accept(j, i, scores[j]);
+                        }
+                    }
+                }
+            });
+            if (newPairs != null) newPairs.end();
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.example.plagiarism.pairwise;
+
+import com.example.plagiarism.Document;
+
+import java.util.List;
+
+/**
+ * Receives pairwise scores as they are computed instead of collecting them in a list, so a
+ * batch run only holds what its sinks keep. Pairs are identified by their indices into the
+ * document list passed to {@link #begin}; no per-pair object is created.
+ *
+ * Sequential runs deliver pairs in (i, j) order. The parallel engine delivers one tile at a
+ * time while holding the sink's monitor, so implementations need no locking of their own
+ * but must not assume any order across tiles.
+ */
+public interface PairwiseResultSink {
+
+    default void begin(List<Document> documents) {
+    }
+
+    // Called once per scored pair, i < j
+    void accept(int i, int j, double score);
+
+    default void end() {
+    }
+}
@@ -0,0 +1,225 @@
+package com.example.plagiarism.pairwise;
+
+import com.example.plagiarism.AnalysisCache;
+import com.example.plagiarism.AnalyzedDocument;
+import com.example.plagiarism.Document;
+import com.example.plagiarism.PlagiarismChecker;
+import com.example.plagiarism.config.AppConfig;
+import com.example.plagiarism.similarity.SimilarityAlgorithm;
+import com.example.plagiarism.similarity.SimilarityAlgorithms;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.IntConsumer;
+
+/**
+ * Runs the all-pairs comparison on a fork/join pool.
+ *
+ * The upper triangle of the N x N comparison matrix is cut into square tiles of
+ * {@code tileSize} rows by {@code tileSize} columns. Tiles are the unit of work-stealing,
+ * so threads that finish the short rows near the bottom of the triangle steal from the long
+ * rows at the top. Every pair is written to its fixed slot in the output, which keeps the
+ * result order identical to {@link PlagiarismChecker#checkPairwise}.
+ *
+ * Each document's algorithm features are prepared in parallel before any tile runs, so
+ * the tiles only do the cheap pairwise scoring.
+ *
+ * Scoring here is pure: documents are never mutated, so no {@code setPlagiarismScore}
+ * call happens on the worker threads.
+ *
+ * {@link #shared()} is the engine to use for one-off runs: it keeps one pool per
+ * configured parallelism for the life of the JVM, so repeated checks do not start threads.
+ */
+public class ParallelPairwiseEngine implements AutoCloseable {
+    private static final Map<Integer, ForkJoinPool> SHARED_POOLS = new ConcurrentHashMap<>();
+
+    private final ForkJoinPool pool;
+    private final boolean ownsPool;
+    private final int tileSize;
+
+    // Uses pairwise.parallelism (0 = common pool, else a pool of its own that close() shuts down)
+    // and pairwise.tile_size from AppConfig
+    public ParallelPairwiseEngine() {
+        AppConfig config = AppConfig.getInstance();
+        int parallelism = config.getInt("pairwise.parallelism", 0);
+        this.ownsPool = parallelism > 0;
+        this.pool = ownsPool ? new ForkJoinPool(parallelism) : ForkJoinPool.commonPool();
+        this.tileSize = Math.max(1, config.getInt("pairwise.tile_size", 64));
+    }
+
+    // The caller keeps ownership of the pool; close() will not shut it down
+    public ParallelPairwiseEngine(ForkJoinPool pool, int tileSize) {
+        this.pool = pool;
+        this.ownsPool = false;
+        this.tileSize = Math.max(1, tileSize);
+    }
+
+    // Engine on the shared pool for pairwise.parallelism, with pairwise.tile_size; close() is a no-op
+    public static ParallelPairwiseEngine shared() {
+        return shared(AppConfig.getInstance().getInt("pairwise.parallelism", 0));
+    }
+
+    // 0 = common pool; other values get a pool created on first use and never shut down
+    public static ParallelPairwiseEngine shared(int parallelism) {
+        ForkJoinPool pool = parallelism > 0
+                ? SHARED_POOLS.computeIfAbsent(parallelism, ForkJoinPool::new)
+                : ForkJoinPool.commonPool();
+        return new ParallelPairwiseEngine(pool, AppConfig.getInstance().getInt("pairwise.tile_size", 64));
+    }
+
+    public List<PlagiarismChecker.PairwiseResult> run(List<Document> documents, String algorithmName) {
+        int n = documents.size();
+        if (n < 2) return List.of();
+        long pairCount = (long) n * (n - 1) / 2;
+        if (pairCount > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("Too many documents for a materialized result list: " + n);
+        }
+
+        AnalyzedDocument[] analyzed = analyzeAll(documents);
+        SimilarityAlgorithm<?> algorithm = SimilarityAlgorithms.forName(algorithmName);
+        parallelFor(0, n, 4, i -> analyzed[i].features(algorithm));
+        double safeThreshold = PlagiarismChecker.safeThreshold();
+        double highThreshold = PlagiarismChecker.highThreshold();
+        PlagiarismChecker.PairwiseResult[] results = new PlagiarismChecker.PairwiseResult[(int) pairCount];
+
+        int[][] tiles = tiles(n);
+        int[] tileRows = tiles[0];
+        int[] tileCols = tiles[1];
+
+        parallelFor(0, tileRows.length, 1, tile -> {
+            int rowStart = tileRows[tile] * tileSize;
+            int rowEnd = Math.min(n, rowStart + tileSize);
+            int colStart = tileCols[tile] * tileSize;
+            int colEnd = Math.min(n, colStart + tileSize);
+            for (int i = rowStart; i < rowEnd; i++) {
+                for (int j = Math.max(i + 1, colStart); j < colEnd; j++) {
+                    double score = algorithm.compare(analyzed[i], analyzed[j]);
+                    results[(int) pairIndex(n, i, j)] = new PlagiarismChecker.PairwiseResult(documents.get(i), documents.get(j),
+                            score, PlagiarismChecker.verdictFor(score, safeThreshold, highThreshold));
+                }
+            }
+        });
+        return Arrays.asList(results);
+    }
+
+    /**
+     * Streams every pair to the sink. Each tile is scored into a local buffer and then
+     * handed to the sink in one go while holding its monitor, so memory is one tile per
+     * worker plus whatever the sink keeps.
+     */
+    public void run(List<Document> documents, String algorithmName, PairwiseResultSink sink) {
+        int n = documents.size();
+        AnalyzedDocument[] analyzed = analyzeAll(documents);
+        SimilarityAlgorithm<?> algorithm = SimilarityAlgorithms.forName(algorithmName);
+        parallelFor(0, n, 4, i -> analyzed[i].features(algorithm));
+        sink.begin(documents);
+
+        int[][] tiles = tiles(n);
+        int[] tileRows = tiles[0];
+        int[] tileCols = tiles[1];
+        parallelFor(0, tileRows.length, 1, tile -> {
+            int rowStart = tileRows[tile] * tileSize;
+            int rowEnd = Math.min(n, rowStart + tileSize);
+            int colStart = tileCols[tile] * tileSize;
+            int colEnd = Math.min(n, colStart + tileSize);
+            int capacity = (rowEnd - rowStart) * (colEnd - colStart);
+            int[] rows = new int[capacity];
+            int[] cols = new int[capacity];
+            double[] scores = new double[capacity];
+            int count = 0;
+            for (int i = rowStart; i < rowEnd; i++) {
+                for (int j = Math.max(i + 1, colStart); j < colEnd; j++) {
+                    rows[count] = i;
+                    cols[count] = j;
+                    scores[count] = algorithm.compare(analyzed[i], analyzed[j]);
+                    count++;
+                }
+            }
+            synchronized (sink) {
+                for (int p = 0; p < count; p++) {
+                    sink.accept(rows[p], cols[p], scores[p]);
+                }
+            }
+        });
+        sink.end();
+    }
+
+    public AnalyzedDocument[] analyzeAll(List<Document> documents) {
+        AnalysisCache cache = AnalysisCache.shared();
+        AnalyzedDocument[] analyzed = new AnalyzedDocument[documents.size()];
+        parallelFor(0, analyzed.length, 4, i -> analyzed[i] = cache.analyze(documents.get(i)));
+        return analyzed;
+    }
+
+    // Row-block and column-block numbers of the tiles covering the upper triangle
+    int[][] tiles(int n) {
+        int blocks = (n + tileSize - 1) / tileSize;
+        int[] tileRows = new int[blocks * (blocks + 1) / 2];
+        int[] tileCols = new int[tileRows.length];
+        int t = 0;
+        for (int rb = 0; rb < blocks; rb++) {
+            for (int cb = rb; cb < blocks; cb++) {
+                tileRows[t] = rb;
+                tileCols[t] = cb;
+                t++;
+            }
+        }
+        return new int[][]{tileRows, tileCols};
+    }
+
+    // Position of pair (i, j), i < j, in row-major order of the upper triangle
+    public static long pairIndex(int n, int i, int j) {
+        return (long) i * (2L * n - i - 1) / 2 + (j - i - 1);
+    }
+
+    void parallelFor(int from, int to, int grain, IntConsumer body) {
+        if (from >= to) return;
+        pool.invoke(new RangeAction(from, to, grain, body));
+    }
+
+    public ForkJoinPool pool() {
+        return pool;
+    }
+
+    public int tileSize() {
+        return tileSize;
+    }
+
+    @Override
+    public void close() {
+        if (ownsPool) {
+            pool.shutdown();
+        }
+    }
+
+    private static class RangeAction extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final int from;
+        private final int to;
+        private final int grain;
+        private final IntConsumer body;
+
+        RangeAction(int from, int to, int grain, IntConsumer body) {
+            this.from = from;
+            this.to = to;
+            this.grain = grain;
+            this.body = body;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= grain) {
+                for (int i = from; i < to; i++) {
+                    body.accept(i);
+                }
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new RangeAction(from, mid, grain, body), new RangeAction(mid, to, grain, body));
+        }
+    }
+}
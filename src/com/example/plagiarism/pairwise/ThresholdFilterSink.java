@@ -0,0 +1,39 @@
+package com.example.plagiarism.pairwise;
+
+import com.example.plagiarism.Document;
+
+import java.util.List;
+
+// Forwards only pairs with score >= minScore (0.0 - 1.0) to the downstream sink
+public class ThresholdFilterSink implements PairwiseResultSink {
+    private final double minScore;
+    private final PairwiseResultSink downstream;
+    private long passed;
+
+    public ThresholdFilterSink(double minScore, PairwiseResultSink downstream) {
+        this.minScore = minScore;
+        this.downstream = downstream;
+    }
+
+    @Override
+    public void begin(List<Document> documents) {
+        downstream.begin(documents);
+    }
+
+    @Override
+    public void accept(int i, int j, double score) {
+        if (score >= minScore) {
+            passed++;
+            downstream.accept(i, j, score);
+        }
+    }
+
+    @Override
+    public void end() {
+        downstream.end();
+    }
+
+    public long passed() {
+        return passed;
+    }
+}
@@ -0,0 +1,285 @@
+package com.example.plagiarism.pairwise;
+
+import com.example.plagiarism.AnalyzedDocument;
+import com.example.plagiarism.Document;
+import com.example.plagiarism.PlagiarismChecker;
+import com.example.plagiarism.similarity.LevenshteinSimilarity;
+import com.example.plagiarism.similarity.SimilarityAlgorithm;
+import com.example.plagiarism.similarity.SimilarityAlgorithms;
+import com.example.plagiarism.similarity.SparseTermVector;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * All pairs whose similarity is at least a threshold, without scoring every pair.
+ *
+ * For the set-based algorithms (Jaccard, cosine over binary term vectors, n-gram) this is
+ * PPJoin: every document becomes an array of element ranks in one global order, rarest
+ * first, and records are processed shortest first. A pair can only reach the threshold if
+ * the documents' sizes are close enough (size filter), if they share an element within
+ * their short prefixes (prefix filter), and if the overlap counted so far plus what is left
+ * after the matching positions can still reach the required overlap (positional filter).
+ * Surviving candidates are scored exactly. Levenshtein uses the length-ratio bound and the
+ * early-exit bounded distance instead; that distance is exact for every pair that reaches
+ * the threshold, so its score is reported as is.
+ *
+ * Returned scores are the same values checkPairwise reports, in the same (i, j) order.
+ */
+public class ThresholdPairwiseJoin {
+    private static final double EPS = 1e-9;
+    private static final int PRUNED = -1;
+
+    private final String algorithmName;
+    private final double minScore;
+
+    public ThresholdPairwiseJoin(String algorithmName, double minScore) {
+        this.algorithmName = algorithmName;
+        this.minScore = minScore;
+    }
+
+    public List<PlagiarismChecker.PairwiseResult> run(List<Document> documents) {
+        List<AnalyzedDocument> analyzed = PlagiarismChecker.analyzeAll(documents);
+        SimilarityAlgorithm<?> algorithm = SimilarityAlgorithms.forName(algorithmName);
+        Candidates pairs;
+        String alg = algorithmName.toLowerCase();
+        if (minScore <= 0.0) {
+            pairs = allPairs(documents.size());
+        } else if (alg.equals("levenshtein")) {
+            pairs = levenshteinCandidates(analyzed);
+        } else if (alg.equals("jaccard")) {
+            pairs = ppjoin(termRecords(analyzed), false);
+        } else if (algorithm.shingleSize() > 0) {
+            pairs = ppjoin(ngramRecords(analyzed, algorithm.shingleSize()), false);
+        } else if (allBinary(analyzed)) {
+            pairs = ppjoin(termRecords(analyzed), true);
+        } else {
+            // Prefix bounds for cosine assume 0/1 term weights
+            pairs = allPairs(documents.size());
+        }
+
+        double safeThreshold = PlagiarismChecker.safeThreshold();
+        double highThreshold = PlagiarismChecker.highThreshold();
+        List<PlagiarismChecker.PairwiseResult> results = new ArrayList<>();
+        for (int k = 0; k < pairs.size(); k++) {
+            int i = pairs.first(k);
+            int j = pairs.second(k);
+            double score = pairs.scored() ? pairs.score(k) : algorithm.compare(analyzed.get(i), analyzed.get(j));
+            if (score >= minScore) {
+                results.add(new PlagiarismChecker.PairwiseResult(documents.get(i), documents.get(j), score,
+                        PlagiarismChecker.verdictFor(score, safeThreshold, highThreshold)));
+            }
+        }
+        return results;
+    }
+
+    private Candidates ppjoin(int[][] records, boolean cosine) {
+        int n = records.length;
+        Integer[] order = new Integer[n];
+        for (int i = 0; i < n; i++) order[i] = i;
+        Arrays.sort(order, (x, y) -> Integer.compare(records[x].length, records[y].length));
+
+        Map<Integer, List<int[]>> index = new HashMap<>();
+        int[] overlap = new int[n];
+        int[] touched = new int[n];
+        Candidates pairs = new Candidates(false);
+        for (int xi : order) {
+            int[] x = records[xi];
+            int xs = x.length;
+            if (xs == 0) continue;
+            int prefix = xs - ceil((cosine ? minScore * minScore : minScore) * xs) + 1;
+            double minSize = (cosine ? minScore * minScore : minScore) * xs - EPS;
+            int touchedCount = 0;
+            for (int p = 0; p < Math.min(prefix, xs); p++) {
+                List<int[]> postings = index.get(x[p]);
+                if (postings == null) continue;
+                for (int[] posting : postings) {
+                    int yi = posting[0];
+                    int ys = records[yi].length;
+                    if (ys < minSize || overlap[yi] == PRUNED) continue;
+                    int required = requiredOverlap(xs, ys, cosine);
+                    int upperBound = 1 + Math.min(xs - p - 1, ys - posting[1] - 1);
+                    if (overlap[yi] == 0) touched[touchedCount++] = yi;
+                    if (overlap[yi] + upperBound >= required) {
+                        overlap[yi]++;
+                    } else {
+                        overlap[yi] = PRUNED;
+                    }
+                }
+            }
+            for (int t = 0; t < touchedCount; t++) {
+                int yi = touched[t];
+                if (overlap[yi] > 0) {
+                    pairs.add(Math.min(xi, yi), Math.max(xi, yi));
+                }
+                overlap[yi] = 0;
+            }
+            for (int p = 0; p < Math.min(prefix, xs); p++) {
+                index.computeIfAbsent(x[p], k -> new ArrayList<>()).add(new int[]{xi, p});
+            }
+        }
+        pairs.sort();
+        return pairs;
+    }
+
+    private int requiredOverlap(int xs, int ys, boolean cosine) {
+        if (cosine) {
+            return ceil(minScore * Math.sqrt((double) xs * ys));
+        }
+        return ceil(minScore / (1.0 + minScore) * (xs + ys));
+    }
+
+    // Pairs that reach the threshold, with their scores from the bounded distance
+    private Candidates levenshteinCandidates(List<AnalyzedDocument> analyzed) {
+        int n = analyzed.size();
+        Integer[] order = new Integer[n];
+        for (int i = 0; i < n; i++) order[i] = i;
+        Arrays.sort(order, (x, y) -> Integer.compare(analyzed.get(x).joinedTokens().length(),
+                analyzed.get(y).joinedTokens().length()));
+        Candidates pairs = new Candidates(true);
+        int start = 0;
+        for (int b = 0; b < n; b++) {
+            String longer = analyzed.get(order[b]).joinedTokens();
+            while (start < b && analyzed.get(order[start]).joinedTokens().length() < minScore * longer.length() - EPS) {
+                start++;
+            }
+            for (int a = start; a < b; a++) {
+                String shorter = analyzed.get(order[a]).joinedTokens();
+                double score = LevenshteinSimilarity.compute(shorter, longer, minScore);
+                if (score >= minScore) {
+                    pairs.add(Math.min(order[a], order[b]), Math.max(order[a], order[b]), score);
+                }
+            }
+        }
+        pairs.sort();
+        return pairs;
+    }
+
+    private static int[][] termRecords(List<AnalyzedDocument> analyzed) {
+        int[][] raw = new int[analyzed.size()][];
+        for (int d = 0; d < raw.length; d++) {
+            SparseTermVector v = analyzed.get(d).termVector();
+            raw[d] = new int[v.size()];
+            for (int p = 0; p < v.size(); p++) raw[d][p] = v.idAt(p);
+        }
+        return rankByFrequency(raw);
+    }
+
+    private static int[][] ngramRecords(List<AnalyzedDocument> analyzed, int n) {
+        Map<Long, Integer> ids = new HashMap<>();
+        int[][] raw = new int[analyzed.size()][];
+        for (int d = 0; d < raw.length; d++) {
+            long[] hashes = analyzed.get(d).ngramHashes(n);
+            raw[d] = new int[hashes.length];
+            for (int p = 0; p < hashes.length; p++) {
+                raw[d][p] = ids.computeIfAbsent(hashes[p], h -> ids.size());
+            }
+        }
+        return rankByFrequency(raw);
+    }
+
+    // Replaces element ids by their rank in ascending document frequency and sorts each record
+    private static int[][] rankByFrequency(int[][] raw) {
+        int maxId = -1;
+        for (int[] r : raw) for (int id : r) maxId = Math.max(maxId, id);
+        int[] df = new int[maxId + 1];
+        for (int[] r : raw) for (int id : r) df[id]++;
+        Integer[] byFrequency = new Integer[maxId + 1];
+        for (int i = 0; i <= maxId; i++) byFrequency[i] = i;
+        Arrays.sort(byFrequency, (a, b) -> df[a] != df[b] ? Integer.compare(df[a], df[b]) : Integer.compare(a, b));
+        int[] rank = new int[maxId + 1];
+        for (int r = 0; r <= maxId; r++) rank[byFrequency[r]] = r;
+        int[][] records = new int[raw.length][];
+        for (int d = 0; d < raw.length; d++) {
+            records[d] = new int[raw[d].length];
+            for (int p = 0; p < raw[d].length; p++) records[d][p] = rank[raw[d][p]];
+            Arrays.sort(records[d]);
+        }
+        return records;
+    }
+
+    private static boolean allBinary(List<AnalyzedDocument> analyzed) {
+        for (AnalyzedDocument d : analyzed) {
+            SparseTermVector v = d.termVector();
+            for (int p = 0; p < v.size(); p++) {
+                if (v.countAt(p) != 1) return false;
+            }
+        }
+        return true;
+    }
+
+    private static Candidates allPairs(int n) {
+        Candidates pairs = new Candidates(false);
+        for (int i = 0; i < n; i++) {
+            for (int j = i + 1; j < n; j++) {
+                pairs.add(i, j);
+            }
+        }
+        return pairs;
+    }
+
+    // Rounds up, tolerating floating-point error so the filters stay conservative
+    private static int ceil(double value) {
+        return (int) Math.ceil(value - EPS);
+    }
+
+    /**
+     * Candidate pairs packed as i << 32 | j with i < j, so sorting the longs orders them by
+     * (i, j) without an array per pair. Scored lists also carry each pair's exact score.
+     */
+    private static final class Candidates {
+        private static final int MAX_SIZE = Integer.MAX_VALUE - 8;
+
+        private long[] pairs = new long[16];
+        private double[] scores;
+        private int size;
+
+        Candidates(boolean scored) {
+            if (scored) scores = new double[pairs.length];
+        }
+
+        void add(int i, int j) {
+            grow();
+            pairs[size++] = (long) i << 32 | j;
+        }
+
+        void add(int i, int j, double score) {
+            grow();
+            scores[size] = score;
+            pairs[size++] = (long) i << 32 | j;
+        }
+
+        void sort() {
+            if (scores == null) {
+                Arrays.sort(pairs, 0, size);
+                return;
+            }
+            // Pairs are distinct, so each score finds its slot by binary search
+            long[] sorted = Arrays.copyOf(pairs, size);
+            Arrays.sort(sorted);
+            double[] sortedScores = new double[size];
+            for (int k = 0; k < size; k++) {
+                sortedScores[Arrays.binarySearch(sorted, pairs[k])] = scores[k];
+            }
+            pairs = sorted;
+            scores = sortedScores;
+        }
+
+        int size() { return size; }
+        int first(int k) { return (int) (pairs[k] >>> 32); }
+        int second(int k) { return (int) pairs[k]; }
+        boolean scored() { return scores != null; }
+        double score(int k) { return scores[k]; }
+
+        private void grow() {
+            if (size < pairs.length) return;
+            if (size == MAX_SIZE) throw new IllegalStateException("Too many candidate pairs");
+            int capacity = (int) Math.min(MAX_SIZE, 2L * pairs.length);
+            pairs = Arrays.copyOf(pairs, capacity);
+            if (scores != null) scores = Arrays.copyOf(scores, capacity);
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.plagiarism.pairwise;
+
+import com.example.plagiarism.Document;
+import com.example.plagiarism.PlagiarismChecker;
+import com.example.plagiarism.index.TopK;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The k most similar partners of every document, kept in one bounded heap per document;
+ * memory is N x k entries regardless of the number of pairs.
+ */
+public class TopKPerDocumentSink implements PairwiseResultSink {
+    private final int k;
+    private List<Document> documents;
+    private List<TopK<PlagiarismChecker.PairwiseResult>> tops;
+    private double safeThreshold;
+    private double highThreshold;
+
+    public TopKPerDocumentSink(int k) {
+        this.k = k;
+    }
+
+    @Override
+    public void begin(List<Document> documents) {
+        this.documents = documents;
+        this.tops = new ArrayList<>(documents.size());
+        for (int d = 0; d < documents.size(); d++) {
+            tops.add(new TopK<>(k));
+        }
+        this.safeThreshold = PlagiarismChecker.safeThreshold();
+        this.highThreshold = PlagiarismChecker.highThreshold();
+    }
+
+    @Override
+    public void accept(int i, int j, double score) {
+        offer(i, j, score);
+        offer(j, i, score);
+    }
+
+    // Best partners of the document at this index, as (document, partner) pairs, best first
+    public List<PlagiarismChecker.PairwiseResult> topFor(int document) {
+        return tops.get(document).toSortedList();
+    }
+
+    public int documentCount() {
+        return tops == null ? 0 : tops.size();
+    }
+
+    private void offer(int owner, int partner, double score) {
+        TopK<PlagiarismChecker.PairwiseResult> top = tops.get(owner);
+        if (top.canEnter(score)) {
+            top.offer(new PlagiarismChecker.PairwiseResult(documents.get(owner), documents.get(partner), score,
+                    PlagiarismChecker.verdictFor(score, safeThreshold, highThreshold)), score);
+        }
+    }
+}
@@ -0,0 +1,310 @@
+package com.example.plagiarism.pairwise;
+
+import com.example.plagiarism.Document;
+import com.example.plagiarism.index.TopK;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * Every pairwise score of N documents as float32 values outside the Java heap.
+ *
+ * Only the strict lower triangle is stored, row-major: the score of (i, j), i > j, is
+ * element i * (i - 1) / 2 + j, so N = 20,000 takes about 800 MB. The storage is either a
+ * memory-mapped file, which persists across runs and is paged in on demand, or direct
+ * buffers. It is split into 1 GiB chunks because a single buffer cannot exceed 2 GiB.
+ *
+ * File layout: a 64-byte header (magic, version, document count, bytes per score) followed
+ * by the triangle in little-endian order. Writes to distinct pairs may come from any thread;
+ * as a {@link PairwiseResultSink} the matrix can be filled directly by the pairwise engines.
+ *
+ * Adding documents only appends rows, so {@link #grow} keeps every stored score in place.
+ * The file header keeps the old document count until {@link #commitDocumentCount} runs
+ * after the new rows are filled, so a crash in between leaves a file that reopens with only
+ * the rows that were complete.
+ */
+public class TriangularScoreMatrix implements PairwiseResultSink, Closeable {
+    static final int MAGIC = 0x50534D58; // "PSMX"
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 64;
+    private static final int CHUNK_SHIFT = 28; // 2^28 floats = 1 GiB per chunk
+    private static final long CHUNK_ELEMENTS = 1L << CHUNK_SHIFT;
+
+    private volatile int documentCount;
+    private volatile ByteBuffer[] chunks;
+    private final ByteBuffer header;
+    private final FileChannel channel;
+
+    public static class Neighbor {
+        private final int index;
+        private final float score;
+
+        public Neighbor(int index, float score) {
+            this.index = index;
+            this.score = score;
+        }
+
+        public int index() { return index; }
+        public float score() { return score; }
+    }
+
+    private TriangularScoreMatrix(int documentCount, ByteBuffer[] chunks, ByteBuffer header, FileChannel channel) {
+        this.documentCount = documentCount;
+        this.chunks = chunks;
+        this.header = header;
+        this.channel = channel;
+    }
+
+    // Off-heap but not persisted
+    public static TriangularScoreMatrix inMemory(int documentCount) {
+        long elements = elementCount(documentCount);
+        ByteBuffer[] chunks = new ByteBuffer[chunkCount(elements)];
+        for (int c = 0; c < chunks.length; c++) {
+            chunks[c] = ByteBuffer.allocateDirect(chunkBytes(elements, c)).order(ByteOrder.LITTLE_ENDIAN);
+        }
+        return new TriangularScoreMatrix(documentCount, chunks, null, null);
+    }
+
+    // Creates or truncates the file; all scores start at 0
+    public static TriangularScoreMatrix create(Path file, int documentCount) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        try {
+            MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_BYTES);
+            header.order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(0, MAGIC);
+            header.putInt(4, VERSION);
+            header.putInt(8, documentCount);
+            header.putInt(12, Float.BYTES);
+            return new TriangularScoreMatrix(documentCount, mapChunks(channel, documentCount), header, channel);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    public static TriangularScoreMatrix open(Path file) throws IOException {
+        if (!Files.exists(file)) throw new IOException("No score matrix at " + file);
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            if (channel.size() < HEADER_BYTES) throw new IOException("Not a score matrix file: " + file);
+            MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_BYTES);
+            header.order(ByteOrder.LITTLE_ENDIAN);
+            if (header.getInt(0) != MAGIC) throw new IOException("Not a score matrix file: " + file);
+            if (header.getInt(4) != VERSION) throw new IOException("Unsupported score matrix version " + header.getInt(4));
+            if (header.getInt(12) != Float.BYTES) throw new IOException("Unsupported score width " + header.getInt(12));
+            int documentCount = header.getInt(8);
+            if (channel.size() < HEADER_BYTES + elementCount(documentCount) * Float.BYTES) {
+                throw new IOException("Score matrix file is truncated: " + file);
+            }
+            return new TriangularScoreMatrix(documentCount, mapChunks(channel, documentCount), header, channel);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    public int documentCount() {
+        return documentCount;
+    }
+
+    public long pairCount() {
+        return elementCount(documentCount);
+    }
+
+    /**
+     * Makes room for more documents; existing scores keep their positions and new pairs
+     * start at 0. A file-backed matrix records the new count on disk only at
+     * {@link #commitDocumentCount}. Must not run concurrently with reads or writes.
+     */
+    public synchronized void grow(int newDocumentCount) throws IOException {
+        if (newDocumentCount < documentCount) throw new IllegalArgumentException("A score matrix cannot shrink");
+        if (newDocumentCount == documentCount) return;
+        if (channel != null) {
+            chunks = mapChunks(channel, newDocumentCount);
+            // Rows past the header's count may hold scores from an interrupted batch
+            clear(elementCount(documentCount), elementCount(newDocumentCount));
+        } else {
+            long elements = elementCount(newDocumentCount);
+            ByteBuffer[] grown = new ByteBuffer[chunkCount(elements)];
+            for (int c = 0; c < grown.length; c++) {
+                int bytes = chunkBytes(elements, c);
+                ByteBuffer old = c < chunks.length ? chunks[c] : null;
+                if (old != null && old.capacity() == bytes) {
+                    grown[c] = old;
+                } else {
+                    grown[c] = ByteBuffer.allocateDirect(bytes).order(ByteOrder.LITTLE_ENDIAN);
+                    if (old != null) {
+                        grown[c].put(old.duplicate().clear());
+                        grown[c].clear();
+                    }
+                }
+            }
+            chunks = grown;
+        }
+        documentCount = newDocumentCount;
+    }
+
+    /**
+     * Forces the rows to disk, then writes the current document count into the header and
+     * forces it, so the header never counts rows that are not on disk.
+     */
+    public synchronized void commitDocumentCount() {
+        if (channel == null) return;
+        for (ByteBuffer chunk : chunks) {
+            ((MappedByteBuffer) chunk).force();
+        }
+        header.putInt(8, documentCount);
+        ((MappedByteBuffer) header).force();
+    }
+
+    // Drops the rows of documents from documentCount on, e.g. after a failed batch
+    public synchronized void truncate(int documentCount) {
+        if (documentCount < 0 || documentCount > this.documentCount) {
+            throw new IllegalArgumentException("Cannot truncate " + this.documentCount + " documents to " + documentCount);
+        }
+        clear(elementCount(documentCount), elementCount(this.documentCount));
+        this.documentCount = documentCount;
+    }
+
+    // Score of a document against itself is 1
+    public float get(int i, int j) {
+        if (i == j) {
+            checkIndex(i);
+            return 1.0f;
+        }
+        return element(elementIndex(i, j));
+    }
+
+    public void set(int i, int j, float score) {
+        if (i == j) throw new IllegalArgumentException("The diagonal is not stored");
+        long e = elementIndex(i, j);
+        chunks[(int) (e >>> CHUNK_SHIFT)].putFloat((int) (e & (CHUNK_ELEMENTS - 1)) << 2, score);
+    }
+
+    /**
+     * Scores of document i against every document (out[i] = 1). The matrix is symmetric, so
+     * this is both row and column i: the part before i is read contiguously and the part
+     * after i with a growing stride.
+     */
+    public float[] row(int i) {
+        checkIndex(i);
+        float[] out = new float[documentCount];
+        long base = (long) i * (i - 1) / 2;
+        for (int j = 0; j < i; j++) {
+            out[j] = element(base + j);
+        }
+        out[i] = 1.0f;
+        for (int k = i + 1; k < documentCount; k++) {
+            out[k] = element((long) k * (k - 1) / 2 + i);
+        }
+        return out;
+    }
+
+    // The k documents most similar to document i, best first
+    public List<Neighbor> topK(int i, int k) {
+        float[] scores = row(i);
+        TopK<Neighbor> top = new TopK<>(k);
+        for (int j = 0; j < scores.length; j++) {
+            if (j != i && top.canEnter(scores[j])) {
+                top.offer(new Neighbor(j, scores[j]), scores[j]);
+            }
+        }
+        return top.toSortedList();
+    }
+
+    @Override
+    public void begin(List<Document> documents) {
+        if (documents.size() != documentCount) {
+            throw new IllegalArgumentException("Matrix holds " + documentCount + " documents, got " + documents.size());
+        }
+    }
+
+    @Override
+    public void accept(int i, int j, double score) {
+        set(i, j, (float) score);
+    }
+
+    @Override
+    public void end() {
+        force();
+    }
+
+    // Writes modified pages of a file-backed matrix to disk
+    public void force() {
+        if (channel == null) return;
+        for (ByteBuffer chunk : chunks) {
+            ((MappedByteBuffer) chunk).force();
+        }
+        ((MappedByteBuffer) header).force();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (channel == null) return;
+        force();
+        channel.close();
+    }
+
+    private void clear(long from, long to) {
+        byte[] zeros = new byte[64 * 1024];
+        long e = from;
+        while (e < to) {
+            ByteBuffer chunk = chunks[(int) (e >>> CHUNK_SHIFT)];
+            int start = (int) (e & (CHUNK_ELEMENTS - 1)) << 2;
+            int bytes = (int) Math.min(zeros.length, Math.min((to - e) << 2, chunk.capacity() - start));
+            chunk.duplicate().position(start).put(zeros, 0, bytes);
+            e += bytes >> 2;
+        }
+    }
+
+    private float element(long e) {
+        return chunks[(int) (e >>> CHUNK_SHIFT)].getFloat((int) (e & (CHUNK_ELEMENTS - 1)) << 2);
+    }
+
+    private long elementIndex(int i, int j) {
+        checkIndex(i);
+        checkIndex(j);
+        int row = Math.max(i, j);
+        int col = Math.min(i, j);
+        return (long) row * (row - 1) / 2 + col;
+    }
+
+    private void checkIndex(int i) {
+        if (i < 0 || i >= documentCount) {
+            throw new IndexOutOfBoundsException("Document " + i + " outside 0.." + (documentCount - 1));
+        }
+    }
+
+    static long elementCount(int documentCount) {
+        return (long) documentCount * (documentCount - 1) / 2;
+    }
+
+    private static int chunkCount(long elements) {
+        return (int) ((elements + CHUNK_ELEMENTS - 1) >>> CHUNK_SHIFT);
+    }
+
+    private static int chunkBytes(long elements, int chunk) {
+        long start = (long) chunk << CHUNK_SHIFT;
+        return (int) (Math.min(CHUNK_ELEMENTS, elements - start) * Float.BYTES);
+    }
+
+    private static ByteBuffer[] mapChunks(FileChannel channel, int documentCount) throws IOException {
+        long elements = elementCount(documentCount);
+        ByteBuffer[] chunks = new ByteBuffer[chunkCount(elements)];
+        for (int c = 0; c < chunks.length; c++) {
+            long offset = HEADER_BYTES + ((long) c << CHUNK_SHIFT) * Float.BYTES;
+            chunks[c] = channel.map(FileChannel.MapMode.READ_WRITE, offset, chunkBytes(elements, c))
+                    .order(ByteOrder.LITTLE_ENDIAN);
+        }
+        return chunks;
+    }
+}
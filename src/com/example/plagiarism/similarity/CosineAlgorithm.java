@@ -0,0 +1,26 @@
+package com.example.plagiarism.similarity;
+
+import com.example.plagiarism.AnalyzedDocument;
+
+public class CosineAlgorithm implements SimilarityAlgorithm<SparseTermVector> {
+
+    @Override
+    public String name() {
+        return "cosine";
+    }
+
+    @Override
+    public SparseTermVector prepare(AnalyzedDocument document) {
+        return document.termVector();
+    }
+
+    @Override
+    public double score(SparseTermVector a, SparseTermVector b) {
+        return SparseTermVector.cosine(a, b);
+    }
+
+    @Override
+    public double upperBound(SparseTermVector a, SparseTermVector b) {
+        return SparseTermVector.cosineUpperBound(a, b);
+    }
+}
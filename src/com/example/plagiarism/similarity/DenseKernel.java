@@ -0,0 +1,41 @@
+package com.example.plagiarism.similarity;
+
+import com.example.plagiarism.config.AppConfig;
+
+/**
+ * Batch dot products of one dense query vector against rows of a row-major matrix.
+ *
+ * {@link #best()} returns the SIMD kernel built on jdk.incubator.vector when that module
+ * is in the boot layer (run with {@code --add-modules jdk.incubator.vector}) and the
+ * portable scalar kernel otherwise. The SIMD kernel lives in src-vector and is compiled
+ * separately, only on JDKs that ship the module; it is looked up by name after the module
+ * check, so the main sources build on Java 11 and run unchanged without it.
+ */
+public interface DenseKernel {
+
+    // out[r] = dot(query, row firstRow + r of matrix) for r in [0, rows); dim is query.length
+    void dotProducts(float[] query, float[] matrix, int firstRow, int rows, float[] out);
+
+    String name();
+
+    static DenseKernel best() {
+        return KernelHolder.BEST;
+    }
+}
+
+class KernelHolder {
+    static final DenseKernel BEST = detect();
+
+    private static DenseKernel detect() {
+        boolean simdEnabled = AppConfig.getInstance().getBoolean("dense.simd", true);
+        if (simdEnabled && ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()) {
+            try {
+                return (DenseKernel) Class.forName("com.example.plagiarism.similarity.VectorDenseKernel")
+                        .getDeclaredConstructor().newInstance();
+            } catch (ReflectiveOperationException | LinkageError e) {
+                // Fall through to the scalar kernel
+            }
+        }
+        return new ScalarDenseKernel();
+    }
+}
@@ -0,0 +1,29 @@
+package com.example.plagiarism.similarity;
+
+import java.util.Map;
+
+/**
+ * Fixed-width dense vector from term frequencies by the hashing trick: each term adds its
+ * frequency to one of {@code dimensions} buckets with a hash-derived sign, so collisions
+ * cancel out in expectation. The vector is L2-normalized, so the dot product of two
+ * vectors approximates their cosine similarity.
+ */
+public class HashedTermVector {
+
+    public static float[] of(Map<String, Integer> termFrequencies, int dimensions) {
+        float[] vector = new float[dimensions];
+        for (Map.Entry<String, Integer> e : termFrequencies.entrySet()) {
+            long h = MinHash.hash64(e.getKey());
+            int bucket = (int) Long.remainderUnsigned(h, dimensions);
+            float weight = e.getValue();
+            vector[bucket] += h < 0 ? -weight : weight;
+        }
+        double sumOfSquares = 0.0;
+        for (float v : vector) sumOfSquares += (double) v * v;
+        if (sumOfSquares > 0.0) {
+            float scale = (float) (1.0 / Math.sqrt(sumOfSquares));
+            for (int i = 0; i < dimensions; i++) vector[i] *= scale;
+        }
+        return vector;
+    }
+}
@@ -0,0 +1,33 @@
+package com.example.plagiarism.similarity;
+
+import com.example.plagiarism.AnalyzedDocument;
+
+public class LevenshteinAlgorithm implements SimilarityAlgorithm<String> {
+
+    @Override
+    public String name() {
+        return "levenshtein";
+    }
+
+    @Override
+    public String prepare(AnalyzedDocument document) {
+        return document.joinedTokens();
+    }
+
+    @Override
+    public double score(String a, String b) {
+        return LevenshteinSimilarity.compute(a, b);
+    }
+
+    @Override
+    public double score(String a, String b, double minScore) {
+        return LevenshteinSimilarity.compute(a, b, minScore);
+    }
+
+    // The length difference alone costs that many insertions
+    @Override
+    public double upperBound(String a, String b) {
+        int max = Math.max(a.length(), b.length());
+        return max == 0 ? 1.0 : 1.0 - (double) Math.abs(a.length() - b.length()) / max;
+    }
+}
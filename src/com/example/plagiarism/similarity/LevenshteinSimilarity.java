@@ -1,46 +1,245 @@
 package com.example.plagiarism.similarity;
 
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
+/**
+ * Edit-distance similarity, 1 - distance / max(length).
+ *
+ * The distance is computed with Myers' bit-parallel algorithm in Hyyrö's multi-word
+ * form, which needs ceil(m / 64) words of state for the shorter string and no matrix.
+ * When the caller only cares whether a similarity threshold is reached, a bounded
+ * variant stops as soon as the distance is known to exceed what the threshold allows,
+ * switching to a diagonal band (Ukkonen) when the band is narrow. Scratch buffers are
+ * kept per thread and reused across calls.
+ */
 public class LevenshteinSimilarity {
+    private static final ThreadLocal<Scratch> SCRATCH = ThreadLocal.withInitial(Scratch::new);
 
     public static double compute(List<String> tokensA, List<String> tokensB) {
         String textA = String.join(" ", tokensA);
         String textB = String.join(" ", tokensB);
+        return compute(textA, textB);
+    }
 
-        int distance = levenshteinDistance(textA, textB);
+    // Takes the already-joined token strings, e.g. AnalyzedDocument.joinedTokens()
+    public static double compute(String textA, String textB) {
         int maxLength = Math.max(textA.length(), textB.length());
 
         if (maxLength == 0) return 1.0;
 
+        int distance = distance(textA, textB);
         return 1.0 - ((double) distance / maxLength);
     }
 
-    private static int levenshteinDistance(String s1, String s2) {
-        int len1 = s1.length();
-        int len2 = s2.length();
+    /**
+     * Exact when the similarity is at least {@code minSimilarity}; otherwise returns some
+     * value below {@code minSimilarity} without finishing the computation.
+     */
+    public static double compute(String textA, String textB, double minSimilarity) {
+        int maxLength = Math.max(textA.length(), textB.length());
+
+        if (maxLength == 0) return 1.0;
+        if (minSimilarity <= 0.0) return compute(textA, textB);
+
+        // One unit of slack keeps rounding in the threshold from cutting off an exact hit
+        int maxDistance = (int) Math.floor((1.0 - minSimilarity) * maxLength) + 1;
+        int distance = distance(textA, textB, maxDistance);
+        return 1.0 - ((double) distance / maxLength);
+    }
+
+    public static int distance(CharSequence s1, CharSequence s2) {
+        return distance(s1, s2, Integer.MAX_VALUE - 1);
+    }
 
-        int[][] dp = new int[len1 + 1][len2 + 1];
+    // Exact distance if it is <= maxDistance, otherwise maxDistance + 1
+    public static int distance(CharSequence s1, CharSequence s2, int maxDistance) {
+        if (maxDistance < 0) return 0;
 
-        for (int i = 0; i <= len1; i++) {
-            dp[i][0] = i;
+        // Common prefix and suffix never contribute to the distance
+        int start = 0;
+        int end1 = s1.length();
+        int end2 = s2.length();
+        while (start < end1 && start < end2 && s1.charAt(start) == s2.charAt(start)) start++;
+        while (end1 > start && end2 > start && s1.charAt(end1 - 1) == s2.charAt(end2 - 1)) {
+            end1--;
+            end2--;
         }
+        int len1 = end1 - start;
+        int len2 = end2 - start;
 
-        for (int j = 0; j <= len2; j++) {
-            dp[0][j] = j;
+        // The shorter string becomes the bit-parallel pattern, so memory is O(min(m, n))
+        CharSequence pattern = len1 <= len2 ? s1.subSequence(start, end1) : s2.subSequence(start, end2);
+        CharSequence text = len1 <= len2 ? s2.subSequence(start, end2) : s1.subSequence(start, end1);
+        int m = pattern.length();
+        int n = text.length();
+
+        if (n - m > maxDistance) return maxDistance + 1;
+        if (m == 0) return n;
+
+        Scratch scratch = SCRATCH.get();
+        int words = (m + 63) >>> 6;
+        long band = 2L * maxDistance + 1;
+        if (band < 4L * words) {
+            return bandedDistance(text, pattern, maxDistance, scratch);
+        }
+        return words == 1
+                ? myersSingleWord(pattern, text, maxDistance, scratch)
+                : myersBlocks(pattern, text, words, maxDistance, scratch);
+    }
+
+    private static int myersSingleWord(CharSequence pattern, CharSequence text, int maxDistance, Scratch scratch) {
+        int m = pattern.length();
+        int n = text.length();
+        scratch.buildPeq(pattern, 1);
+
+        long vp = -1L;
+        long vn = 0L;
+        long last = 1L << (m - 1);
+        int score = m;
+        for (int j = 0; j < n; j++) {
+            long eq = scratch.peq(text.charAt(j), 0);
+            long xv = eq | vn;
+            long xh = (((eq & vp) + vp) ^ vp) | eq;
+            long hp = vn | ~(xh | vp);
+            long hn = vp & xh;
+            if ((hp & last) != 0) score++;
+            else if ((hn & last) != 0) score--;
+            // Each remaining column can lower the score by at most one
+            if (score - (n - j - 1) > maxDistance) return maxDistance + 1;
+            hp = (hp << 1) | 1L;
+            hn = hn << 1;
+            vp = hn | ~(xv | hp);
+            vn = hp & xv;
         }
+        return score > maxDistance ? maxDistance + 1 : score;
+    }
 
-        for (int i = 1; i <= len1; i++) {
-            for (int j = 1; j <= len2; j++) {
-                int cost = (s1.charAt(i - 1) == s2.charAt(j - 1)) ? 0 : 1;
+    private static int myersBlocks(CharSequence pattern, CharSequence text, int words, int maxDistance, Scratch scratch) {
+        int m = pattern.length();
+        int n = text.length();
+        scratch.buildPeq(pattern, words);
+        long[] vp = scratch.longs(0, words);
+        long[] vn = scratch.longs(1, words);
+        Arrays.fill(vp, 0, words, -1L);
+        Arrays.fill(vn, 0, words, 0L);
 
-                dp[i][j] = Math.min(
-                    Math.min(dp[i - 1][j] + 1, dp[i][j - 1] + 1),
-                    dp[i - 1][j - 1] + cost
-                );
+        long last = 1L << ((m - 1) & 63);
+        int score = m;
+        for (int j = 0; j < n; j++) {
+            char c = text.charAt(j);
+            long hpCarry = 1L;
+            long hnCarry = 0L;
+            for (int w = 0; w < words; w++) {
+                long eq = scratch.peq(c, w);
+                long pv = vp[w];
+                long nv = vn[w];
+                long x = eq | hnCarry;
+                long d0 = (((x & pv) + pv) ^ pv) | x | nv;
+                long hp = nv | ~(d0 | pv);
+                long hn = d0 & pv;
+                if (w == words - 1) {
+                    if ((hp & last) != 0) score++;
+                    if ((hn & last) != 0) score--;
+                }
+                long hpOut = hp >>> 63;
+                long hnOut = hn >>> 63;
+                hp = (hp << 1) | hpCarry;
+                hn = (hn << 1) | hnCarry;
+                hpCarry = hpOut;
+                hnCarry = hnOut;
+                vp[w] = hn | ~(d0 | hp);
+                vn[w] = hp & d0;
             }
+            if (score - (n - j - 1) > maxDistance) return maxDistance + 1;
         }
+        return score > maxDistance ? maxDistance + 1 : score;
+    }
 
-        return dp[len1][len2];
+    // Two-row DP restricted to the diagonal band |i - j| <= k
+    private static int bandedDistance(CharSequence longer, CharSequence shorter, int k, Scratch scratch) {
+        int m = longer.length();
+        int n = shorter.length();
+        int inf = k + 1;
+        int[] prev = scratch.ints(0, n + 1);
+        int[] cur = scratch.ints(1, n + 1);
+        for (int j = 0; j <= n; j++) {
+            prev[j] = j <= k ? j : inf;
+        }
+        for (int i = 1; i <= m; i++) {
+            int lo = Math.max(1, i - k);
+            int hi = Math.min(n, i + k);
+            int rowMin = inf;
+            if (lo == 1) {
+                cur[0] = i <= k ? i : inf;
+                rowMin = cur[0];
+            } else {
+                cur[lo - 1] = inf;
+            }
+            char c = longer.charAt(i - 1);
+            for (int j = lo; j <= hi; j++) {
+                int v = prev[j - 1] + (c == shorter.charAt(j - 1) ? 0 : 1);
+                int up = prev[j] + 1;
+                if (up < v) v = up;
+                int left = cur[j - 1] + 1;
+                if (left < v) v = left;
+                if (v > inf) v = inf;
+                cur[j] = v;
+                if (v < rowMin) rowMin = v;
+            }
+            if (hi < n) cur[hi + 1] = inf;
+            if (rowMin > k) return inf;
+            int[] tmp = prev;
+            prev = cur;
+            cur = tmp;
+        }
+        return prev[n] > k ? inf : prev[n];
+    }
+
+    private static class Scratch {
+        private long[] asciiPeq = new long[0];
+        private final Map<Character, long[]> otherPeq = new HashMap<>();
+        private int peqWords;
+        private final long[][] longBuffers = new long[2][0];
+        private final int[][] intBuffers = new int[2][0];
+
+        void buildPeq(CharSequence pattern, int words) {
+            int needed = 256 * words;
+            if (asciiPeq.length < needed) {
+                asciiPeq = new long[needed];
+            } else {
+                Arrays.fill(asciiPeq, 0, needed, 0L);
+            }
+            otherPeq.clear();
+            peqWords = words;
+            for (int i = 0; i < pattern.length(); i++) {
+                char c = pattern.charAt(i);
+                long bit = 1L << (i & 63);
+                int w = i >>> 6;
+                if (c < 256) {
+                    asciiPeq[c * words + w] |= bit;
+                } else {
+                    otherPeq.computeIfAbsent(c, k -> new long[words])[w] |= bit;
+                }
+            }
+        }
+
+        long peq(char c, int word) {
+            if (c < 256) return asciiPeq[c * peqWords + word];
+            long[] bits = otherPeq.get(c);
+            return bits == null ? 0L : bits[word];
+        }
+
+        long[] longs(int which, int size) {
+            if (longBuffers[which].length < size) longBuffers[which] = new long[size];
+            return longBuffers[which];
+        }
+
+        int[] ints(int which, int size) {
+            if (intBuffers[which].length < size) intBuffers[which] = new int[size];
+            return intBuffers[which];
+        }
     }
 }
@@ -0,0 +1,33 @@
+package com.example.plagiarism.similarity;
+
+/**
+ * A copied region: character range [queryStart, queryEnd) of the checked text matches
+ * [sourceStart, sourceEnd) of the source text. Offsets refer to the original, unnormalized text.
+ */
+public class MatchedPassage {
+    private final int queryStart;
+    private final int queryEnd;
+    private final int sourceStart;
+    private final int sourceEnd;
+
+    public MatchedPassage(int queryStart, int queryEnd, int sourceStart, int sourceEnd) {
+        this.queryStart = queryStart;
+        this.queryEnd = queryEnd;
+        this.sourceStart = sourceStart;
+        this.sourceEnd = sourceEnd;
+    }
+
+    public int queryStart() { return queryStart; }
+    public int queryEnd() { return queryEnd; }
+    public int sourceStart() { return sourceStart; }
+    public int sourceEnd() { return sourceEnd; }
+
+    public int queryLength() {
+        return queryEnd - queryStart;
+    }
+
+    @Override
+    public String toString() {
+        return "MatchedPassage{query=[" + queryStart + "," + queryEnd + "), source=[" + sourceStart + "," + sourceEnd + ")}";
+    }
+}
@@ -0,0 +1,75 @@
+package com.example.plagiarism.similarity;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Random;
+
+/**
+ * MinHash signatures: the fraction of equal positions in two signatures is an
+ * unbiased estimate of the Jaccard index of the underlying sets.
+ */
+public class MinHash {
+    private final long[] seeds;
+
+    public MinHash(int numHashes, long seed) {
+        if (numHashes <= 0) throw new IllegalArgumentException("numHashes must be positive");
+        Random random = new Random(seed);
+        this.seeds = new long[numHashes];
+        for (int i = 0; i < numHashes; i++) {
+            seeds[i] = random.nextLong();
+        }
+    }
+
+    public int numHashes() {
+        return seeds.length;
+    }
+
+    public long[] signature(Collection<String> elements) {
+        long[] hashes = new long[elements.size()];
+        int k = 0;
+        for (String e : elements) {
+            hashes[k++] = hash64(e);
+        }
+        return signatureOfHashes(hashes);
+    }
+
+    // Elements given as 64-bit hashes (e.g. n-gram fingerprints)
+    public long[] signatureOfHashes(long[] elementHashes) {
+        long[] sig = new long[seeds.length];
+        Arrays.fill(sig, Long.MAX_VALUE);
+        for (long h : elementHashes) {
+            for (int i = 0; i < seeds.length; i++) {
+                long v = mix(h ^ seeds[i]);
+                if (v < sig[i]) sig[i] = v;
+            }
+        }
+        return sig;
+    }
+
+    public static double estimateJaccard(long[] sigA, long[] sigB) {
+        int len = Math.min(sigA.length, sigB.length);
+        if (len == 0) return 0.0;
+        int equal = 0;
+        for (int i = 0; i < len; i++) {
+            if (sigA[i] == sigB[i]) equal++;
+        }
+        return (double) equal / len;
+    }
+
+    // 64-bit FNV-1a over the UTF-16 chars, finished with mix() for better bit dispersion
+    public static long hash64(CharSequence s) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < s.length(); i++) {
+            h ^= s.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        return mix(h);
+    }
+
+    // splitmix64 finalizer
+    public static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+}
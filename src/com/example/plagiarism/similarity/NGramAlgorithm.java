@@ -0,0 +1,73 @@
+package com.example.plagiarism.similarity;
+
+import com.example.plagiarism.AnalyzedDocument;
+import com.example.plagiarism.PlagiarismChecker;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Jaccard over sorted hashed token n-grams. n is fixed per instance so cached features stay
+ * valid; the registered instance follows ngram.size instead, and {@link #current} hands out
+ * the fixed instance for the size configured at the time of the call.
+ */
+public class NGramAlgorithm implements SimilarityAlgorithm<long[]> {
+    private static final Map<Integer, NGramAlgorithm> BY_SIZE = new ConcurrentHashMap<>();
+
+    private final int n; // 0 follows PlagiarismChecker.ngramSize()
+
+    // Uses ngram.size from AppConfig, read on every use
+    public NGramAlgorithm() {
+        this.n = 0;
+    }
+
+    public NGramAlgorithm(int n) {
+        this.n = Math.max(1, n);
+    }
+
+    public int n() {
+        return n > 0 ? n : PlagiarismChecker.ngramSize();
+    }
+
+    @Override
+    public NGramAlgorithm current() {
+        return n > 0 ? this : BY_SIZE.computeIfAbsent(PlagiarismChecker.ngramSize(), NGramAlgorithm::new);
+    }
+
+    @Override
+    public String name() {
+        return "ngram";
+    }
+
+    @Override
+    public List<String> aliases() {
+        return List.of("n-gram");
+    }
+
+    @Override
+    public int shingleSize() {
+        return n();
+    }
+
+    @Override
+    public long[] prepare(AnalyzedDocument document) {
+        return document.ngramHashes(n());
+    }
+
+    @Override
+    public double score(long[] a, long[] b) {
+        return NGramSimilarity.compute(a, b);
+    }
+
+    @Override
+    public double compare(AnalyzedDocument a, AnalyzedDocument b) {
+        return n > 0 ? SimilarityAlgorithm.super.compare(a, b) : current().compare(a, b);
+    }
+
+    @Override
+    public double upperBound(long[] a, long[] b) {
+        int max = Math.max(a.length, b.length);
+        return max == 0 ? 0.0 : (double) Math.min(a.length, b.length) / max;
+    }
+}
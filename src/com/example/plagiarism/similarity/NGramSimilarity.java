@@ -1,42 +1,93 @@
 package com.example.plagiarism.similarity;
 
-import java.util.ArrayList;
-import java.util.HashSet;
+import java.util.Arrays;
 import java.util.List;
-import java.util.Set;
 
+/**
+ * Jaccard index over word n-grams. Each n-gram is a 64-bit rolling polynomial hash of
+ * its tokens' fingerprints; a document's n-grams are kept as a sorted array of distinct
+ * hashes, so intersection and union are a single merge.
+ */
 public class NGramSimilarity {
+    private static final long BASE = 0x9E3779B97F4A7C15L;
 
     public static double compute(List<String> tokensA, List<String> tokensB, int n) {
-        Set<String> ngramsA = generateNGrams(tokensA, n);
-        Set<String> ngramsB = generateNGrams(tokensB, n);
+        return compute(ngramHashes(tokenFingerprints(tokensA), n), ngramHashes(tokenFingerprints(tokensB), n));
+    }
 
-        if (ngramsA.isEmpty() && ngramsB.isEmpty()) return 0.0;
+    // Both arguments must be sorted and free of duplicates, as returned by ngramHashes
+    public static double compute(long[] ngramsA, long[] ngramsB) {
+        if (ngramsA.length == 0 && ngramsB.length == 0) return 0.0;
 
-        Set<String> intersection = new HashSet<>(ngramsA);
-        intersection.retainAll(ngramsB);
+        int intersection = 0;
+        int i = 0, j = 0;
+        while (i < ngramsA.length && j < ngramsB.length) {
+            long x = ngramsA[i];
+            long y = ngramsB[j];
+            if (x == y) {
+                intersection++;
+                i++;
+                j++;
+            } else if (x < y) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+        int union = ngramsA.length + ngramsB.length - intersection;
 
-        Set<String> union = new HashSet<>(ngramsA);
-        union.addAll(ngramsB);
+        if (union == 0) return 0.0;
 
-        if (union.isEmpty()) return 0.0;
+        return (double) intersection / union;
+    }
 
-        return (double) intersection.size() / union.size();
+    public static long[] tokenFingerprints(List<String> tokens) {
+        long[] fingerprints = new long[tokens.size()];
+        for (int i = 0; i < fingerprints.length; i++) {
+            fingerprints[i] = MinHash.hash64(tokens.get(i));
+        }
+        return fingerprints;
     }
 
-    private static Set<String> generateNGrams(List<String> tokens, int n) {
-        Set<String> ngrams = new HashSet<>();
+    // Sorted distinct hashes of every window of n consecutive tokens
+    public static long[] ngramHashes(long[] tokenFingerprints, int n) {
+        if (n <= 0) throw new IllegalArgumentException("n-gram size must be positive");
+        int count = tokenFingerprints.length;
 
-        if (tokens.size() < n) {
-            ngrams.add(String.join(" ", tokens));
-            return ngrams;
+        if (count < n) {
+            // A text shorter than n is a single n-gram of everything it has
+            long h = count;
+            for (long f : tokenFingerprints) {
+                h = h * BASE + f;
+            }
+            return new long[]{MinHash.mix(h ^ 0x5A17L)};
         }
 
-        for (int i = 0; i <= tokens.size() - n; i++) {
-            List<String> ngram = tokens.subList(i, i + n);
-            ngrams.add(String.join(" ", ngram));
+        long highPower = 1L;
+        for (int i = 1; i < n; i++) {
+            highPower *= BASE;
         }
+        long[] hashes = new long[count - n + 1];
+        long h = 0L;
+        for (int i = 0; i < n; i++) {
+            h = h * BASE + tokenFingerprints[i];
+        }
+        hashes[0] = MinHash.mix(h);
+        for (int i = n; i < count; i++) {
+            h = (h - tokenFingerprints[i - n] * highPower) * BASE + tokenFingerprints[i];
+            hashes[i - n + 1] = MinHash.mix(h);
+        }
+        return sortedDistinct(hashes);
+    }
 
-        return ngrams;
+    private static long[] sortedDistinct(long[] values) {
+        Arrays.sort(values);
+        int unique = 0;
+        for (int i = 0; i < values.length; i++) {
+            if (unique == 0 || values[i] != values[unique - 1]) {
+                values[unique++] = values[i];
+            }
+        }
+        return unique == values.length ? values : Arrays.copyOf(values, unique);
     }
 }
@@ -0,0 +1,34 @@
+package com.example.plagiarism.similarity;
+
+/**
+ * Portable kernel; four independent accumulators per row let the JIT overlap the
+ * multiply-adds instead of serializing on a single sum.
+ */
+public class ScalarDenseKernel implements DenseKernel {
+
+    @Override
+    public void dotProducts(float[] query, float[] matrix, int firstRow, int rows, float[] out) {
+        int dim = query.length;
+        int bound = dim & ~3;
+        for (int r = 0; r < rows; r++) {
+            int base = (firstRow + r) * dim;
+            float s0 = 0f, s1 = 0f, s2 = 0f, s3 = 0f;
+            int i = 0;
+            for (; i < bound; i += 4) {
+                s0 += query[i] * matrix[base + i];
+                s1 += query[i + 1] * matrix[base + i + 1];
+                s2 += query[i + 2] * matrix[base + i + 2];
+                s3 += query[i + 3] * matrix[base + i + 3];
+            }
+            for (; i < dim; i++) {
+                s0 += query[i] * matrix[base + i];
+            }
+            out[r] = (s0 + s1) + (s2 + s3);
+        }
+    }
+
+    @Override
+    public String name() {
+        return "scalar";
+    }
+}
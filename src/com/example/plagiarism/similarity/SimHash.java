@@ -0,0 +1,30 @@
+package com.example.plagiarism.similarity;
+
+import java.util.Map;
+
+/**
+ * 64-bit SimHash (Charikar): each term votes on every bit with its frequency as weight,
+ * so documents with similar term distributions get hashes a small Hamming distance apart.
+ */
+public class SimHash {
+
+    public static long of(Map<String, Integer> termFrequencies) {
+        int[] votes = new int[64];
+        for (Map.Entry<String, Integer> e : termFrequencies.entrySet()) {
+            long h = MinHash.hash64(e.getKey());
+            int weight = e.getValue();
+            for (int bit = 0; bit < 64; bit++) {
+                votes[bit] += ((h >>> bit) & 1L) != 0 ? weight : -weight;
+            }
+        }
+        long hash = 0L;
+        for (int bit = 0; bit < 64; bit++) {
+            if (votes[bit] > 0) hash |= 1L << bit;
+        }
+        return hash;
+    }
+
+    public static int hammingDistance(long a, long b) {
+        return Long.bitCount(a ^ b);
+    }
+}
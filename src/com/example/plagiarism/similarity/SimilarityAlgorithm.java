@@ -0,0 +1,62 @@
+package com.example.plagiarism.similarity;
+
+import com.example.plagiarism.AnalyzedDocument;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * A similarity measure split into a per-document phase and a per-pair phase.
+ *
+ * {@link #prepare} does the expensive work once per document and its result is cached
+ * on the {@link AnalyzedDocument}, so it can be computed at ingestion time and in
+ * parallel; {@link #score} then only combines two prepared feature sets. Implementations
+ * are discovered with {@link java.util.ServiceLoader} (see {@link SimilarityAlgorithms})
+ * and need a public no-argument constructor.
+ *
+ * @param <F> prepared features; serializable so they can be stored with the document
+ */
+public interface SimilarityAlgorithm<F extends Serializable> {
+
+    // Canonical name, matched case-insensitively
+    String name();
+
+    default List<String> aliases() {
+        return List.of();
+    }
+
+    F prepare(AnalyzedDocument document);
+
+    double score(F a, F b);
+
+    /**
+     * Exact when the score is at least {@code minScore}; otherwise may return any value
+     * below it. Algorithms with an early-exit path override this.
+     */
+    default double score(F a, F b, double minScore) {
+        return score(a, b);
+    }
+
+    // Cheap value that score(a, b) can never exceed, e.g. from the feature sizes alone
+    default double upperBound(F a, F b) {
+        return 1.0;
+    }
+
+    /**
+     * Word n-gram length when the score is the Jaccard similarity of the documents' n-gram
+     * hash sets, 0 otherwise. Candidate filters use it to sketch the same sets the score uses.
+     */
+    default int shingleSize() {
+        return 0;
+    }
+
+    // The instance to use under the current settings; one with a configurable parameter returns a fixed copy
+    default SimilarityAlgorithm<F> current() {
+        return this;
+    }
+
+    // Scores two documents through their cached features
+    default double compare(AnalyzedDocument a, AnalyzedDocument b) {
+        return score(a.features(this), b.features(this));
+    }
+}
@@ -0,0 +1,61 @@
+package com.example.plagiarism.similarity;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+
+/**
+ * Registry of {@link SimilarityAlgorithm}s by name and alias.
+ *
+ * Providers listed in META-INF/services are loaded first; the built-in algorithms are
+ * added for any name no provider claimed, so the registry also works when the services
+ * file is missing from the classpath. Unknown names resolve to cosine, as the old
+ * string switch did. Lookups return {@link SimilarityAlgorithm#current}, so settings such
+ * as ngram.size take effect without rebuilding the registry.
+ */
+public class SimilarityAlgorithms {
+    private static final Map<String, SimilarityAlgorithm<?>> BY_NAME = load();
+    private static final List<SimilarityAlgorithm<?>> ALL =
+            Collections.unmodifiableList(new ArrayList<>(new LinkedHashSet<>(BY_NAME.values())));
+
+    public static SimilarityAlgorithm<?> forName(String name) {
+        SimilarityAlgorithm<?> algorithm = BY_NAME.get(name.toLowerCase());
+        return (algorithm != null ? algorithm : BY_NAME.get("cosine")).current();
+    }
+
+    public static boolean isRegistered(String name) {
+        return BY_NAME.containsKey(name.toLowerCase());
+    }
+
+    public static List<SimilarityAlgorithm<?>> all() {
+        return ALL;
+    }
+
+    private static Map<String, SimilarityAlgorithm<?>> load() {
+        Map<String, SimilarityAlgorithm<?>> byName = new LinkedHashMap<>();
+        try {
+            for (SimilarityAlgorithm<?> algorithm : ServiceLoader.load(SimilarityAlgorithm.class)) {
+                register(byName, algorithm);
+            }
+        } catch (ServiceConfigurationError e) {
+            System.err.println("Failed to load similarity algorithms: " + e.getMessage());
+        }
+        register(byName, new CosineAlgorithm());
+        register(byName, new JaccardAlgorithm());
+        register(byName, new NGramAlgorithm());
+        register(byName, new LevenshteinAlgorithm());
+        return byName;
+    }
+
+    private static void register(Map<String, SimilarityAlgorithm<?>> byName, SimilarityAlgorithm<?> algorithm) {
+        byName.putIfAbsent(algorithm.name().toLowerCase(), algorithm);
+        for (String alias : algorithm.aliases()) {
+            byName.putIfAbsent(alias.toLowerCase(), algorithm);
+        }
+    }
+}
@@ -0,0 +1,202 @@
+package com.example.plagiarism.similarity;
+
+import com.example.plagiarism.TermDictionary;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Term-frequency vector as parallel arrays of ascending term ids and their counts.
+ * Cosine and Jaccard are merge-joins over the id arrays and allocate nothing.
+ *
+ * Term ids are only meaningful within one process, so the serialized form stores the
+ * terms themselves and ids are reassigned from the shared dictionary on reading.
+ */
+public class SparseTermVector implements Serializable {
+    private static final long serialVersionUID = 1L;
+    private final int[] ids;
+    private final int[] counts;
+    private final double sumOfSquares;
+    private final int maxCount;
+
+    public SparseTermVector(int[] ids, int[] counts) {
+        if (ids.length != counts.length) throw new IllegalArgumentException("ids and counts differ in length");
+        this.ids = ids;
+        this.counts = counts;
+        double sum = 0.0;
+        int max = 0;
+        for (int c : counts) {
+            sum += c * c;
+            max = Math.max(max, c);
+        }
+        this.sumOfSquares = sum;
+        this.maxCount = max;
+    }
+
+    public static SparseTermVector of(Map<String, Integer> termFrequencies, TermDictionary dictionary) {
+        long[] packed = new long[termFrequencies.size()];
+        int k = 0;
+        for (Map.Entry<String, Integer> e : termFrequencies.entrySet()) {
+            packed[k++] = ((long) dictionary.idFor(e.getKey()) << 32) | (e.getValue() & 0xffffffffL);
+        }
+        Arrays.sort(packed);
+        int[] ids = new int[packed.length];
+        int[] counts = new int[packed.length];
+        for (int i = 0; i < packed.length; i++) {
+            ids[i] = (int) (packed[i] >>> 32);
+            counts[i] = (int) packed[i];
+        }
+        return new SparseTermVector(ids, counts);
+    }
+
+    private Object writeReplace() {
+        TermDictionary dictionary = TermDictionary.shared();
+        String[] terms = new String[ids.length];
+        for (int i = 0; i < ids.length; i++) terms[i] = dictionary.termFor(ids[i]);
+        return new SerializedForm(terms, counts.clone());
+    }
+
+    private static class SerializedForm implements Serializable {
+        private static final long serialVersionUID = 1L;
+        private final String[] terms;
+        private final int[] counts;
+
+        SerializedForm(String[] terms, int[] counts) {
+            this.terms = terms;
+            this.counts = counts;
+        }
+
+        private Object readResolve() {
+            Map<String, Integer> freq = new HashMap<>();
+            for (int i = 0; i < terms.length; i++) freq.put(terms[i], counts[i]);
+            return SparseTermVector.of(freq, TermDictionary.shared());
+        }
+    }
+
+    public int size() {
+        return ids.length;
+    }
+
+    public int idAt(int position) {
+        return ids[position];
+    }
+
+    public int countAt(int position) {
+        return counts[position];
+    }
+
+    public double sumOfSquares() {
+        return sumOfSquares;
+    }
+
+    public int maxCount() {
+        return maxCount;
+    }
+
+    // At most min(size) terms are shared, each adding at most maxCount(a) * maxCount(b) to the dot product
+    public static double cosineUpperBound(SparseTermVector a, SparseTermVector b) {
+        if (a.sumOfSquares == 0.0 || b.sumOfSquares == 0.0) return 0.0;
+        double dot = (double) Math.min(a.ids.length, b.ids.length) * a.maxCount * b.maxCount;
+        return Math.min(1.0, dot / (Math.sqrt(a.sumOfSquares) * Math.sqrt(b.sumOfSquares)));
+    }
+
+    // Intersection over union when the smaller set lies entirely inside the larger
+    public static double jaccardUpperBound(SparseTermVector a, SparseTermVector b) {
+        int max = Math.max(a.ids.length, b.ids.length);
+        return max == 0 ? 0.0 : (double) Math.min(a.ids.length, b.ids.length) / max;
+    }
+
+    public static double cosine(SparseTermVector a, SparseTermVector b) {
+        if (a.sumOfSquares == 0.0 || b.sumOfSquares == 0.0) return 0.0;
+        double dot = 0.0;
+        int i = 0, j = 0;
+        while (i < a.ids.length && j < b.ids.length) {
+            int x = a.ids[i];
+            int y = b.ids[j];
+            if (x == y) {
+                dot += a.counts[i++] * b.counts[j++];
+            } else if (x < y) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+        return dot / (Math.sqrt(a.sumOfSquares) * Math.sqrt(b.sumOfSquares));
+    }
+
+    public static double jaccard(SparseTermVector a, SparseTermVector b) {
+        if (a.ids.length == 0 && b.ids.length == 0) return 0.0;
+        int intersection = overlap(a, b);
+        int union = a.ids.length + b.ids.length - intersection;
+        if (union == 0) return 0.0;
+        return (double) intersection / (double) union;
+    }
+
+    // Number of distinct terms present in both vectors
+    public static int overlap(SparseTermVector a, SparseTermVector b) {
+        int count = 0;
+        int i = 0, j = 0;
+        while (i < a.ids.length && j < b.ids.length) {
+            int x = a.ids[i];
+            int y = b.ids[j];
+            if (x == y) {
+                count++;
+                i++;
+                j++;
+            } else if (x < y) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+        return count;
+    }
+
+    // Dot product and shared-term count from one merge, for callers that need several metrics
+    public static Overlap overlapOf(SparseTermVector a, SparseTermVector b) {
+        double dot = 0.0;
+        int count = 0;
+        int i = 0, j = 0;
+        while (i < a.ids.length && j < b.ids.length) {
+            int x = a.ids[i];
+            int y = b.ids[j];
+            if (x == y) {
+                dot += a.counts[i++] * b.counts[j++];
+                count++;
+            } else if (x < y) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+        return new Overlap(dot, count);
+    }
+
+    // Same value as cosine(a, b), given overlapOf(a, b)
+    public static double cosine(SparseTermVector a, SparseTermVector b, Overlap overlap) {
+        if (a.sumOfSquares == 0.0 || b.sumOfSquares == 0.0) return 0.0;
+        return overlap.dot() / (Math.sqrt(a.sumOfSquares) * Math.sqrt(b.sumOfSquares));
+    }
+
+    // Same value as jaccard(a, b), given overlapOf(a, b)
+    public static double jaccard(SparseTermVector a, SparseTermVector b, Overlap overlap) {
+        int union = a.ids.length + b.ids.length - overlap.sharedTerms();
+        if (union == 0) return 0.0;
+        return (double) overlap.sharedTerms() / (double) union;
+    }
+
+    public static class Overlap {
+        private final double dot;
+        private final int sharedTerms;
+
+        public Overlap(double dot, int sharedTerms) {
+            this.dot = dot;
+            this.sharedTerms = sharedTerms;
+        }
+
+        public double dot() { return dot; }
+        public int sharedTerms() { return sharedTerms; }
+    }
+}
@@ -0,0 +1,171 @@
+package com.example.plagiarism.similarity;
+
+import com.example.plagiarism.config.AppConfig;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Winnowing document fingerprints (Schleimer, Wilkerson and Aiken, as used by MOSS).
+ *
+ * The text is reduced to its lowercased letters and digits, every k-character substring is
+ * hashed with a rolling hash, and from each window of {@code window} consecutive hashes the
+ * minimum is kept. Any shared run of at least k + window - 1 normalized characters is
+ * guaranteed to produce a common fingerprint. Each fingerprint remembers the character range
+ * it covers in the original text, so matches can be reported as passages.
+ */
+public class Winnowing {
+    private static final long BASE = 0x100000001B3L;
+
+    public static class Fingerprint {
+        private final long hash;
+        private final int start;
+        private final int end;
+
+        public Fingerprint(long hash, int start, int end) {
+            this.hash = hash;
+            this.start = start;
+            this.end = end;
+        }
+
+        public long hash() { return hash; }
+        public int start() { return start; }
+        public int end() { return end; }
+    }
+
+    public static int defaultK() {
+        return Math.max(1, AppConfig.getInstance().getInt("winnowing.k", 20));
+    }
+
+    public static int defaultWindow() {
+        return Math.max(1, AppConfig.getInstance().getInt("winnowing.window", 10));
+    }
+
+    public static List<Fingerprint> fingerprints(CharSequence text) {
+        return fingerprints(text, defaultK(), defaultWindow());
+    }
+
+    public static List<Fingerprint> fingerprints(CharSequence text, int k, int window) {
+        if (k <= 0 || window <= 0) throw new IllegalArgumentException("k and window must be positive");
+        // Normalized characters plus the original offset of each one
+        int length = text.length();
+        char[] chars = new char[length];
+        int[] offsets = new int[length];
+        int count = 0;
+        for (int i = 0; i < length; i++) {
+            char c = text.charAt(i);
+            if (Character.isLetterOrDigit(c)) {
+                chars[count] = Character.toLowerCase(c);
+                offsets[count] = i;
+                count++;
+            }
+        }
+        List<Fingerprint> result = new ArrayList<>();
+        if (count < k) return result;
+
+        int grams = count - k + 1;
+        long[] hashes = new long[grams];
+        long highPower = 1L;
+        for (int i = 1; i < k; i++) highPower *= BASE;
+        long h = 0L;
+        for (int i = 0; i < k; i++) h = h * BASE + chars[i];
+        hashes[0] = MinHash.mix(h);
+        for (int i = k; i < count; i++) {
+            h = (h - chars[i - k] * highPower) * BASE + chars[i];
+            hashes[i - k + 1] = MinHash.mix(h);
+        }
+
+        // Robust winnowing: rightmost minimum per window, recorded once per change of position
+        int lastSelected = -1;
+        int windows = Math.max(1, grams - window + 1);
+        for (int w = 0; w < windows; w++) {
+            int end = Math.min(grams, w + window);
+            int min = w;
+            for (int i = w + 1; i < end; i++) {
+                if (hashes[i] <= hashes[min]) min = i;
+            }
+            if (min != lastSelected) {
+                result.add(new Fingerprint(hashes[min], offsets[min], offsets[min + k - 1] + 1));
+                lastSelected = min;
+            }
+        }
+        return result;
+    }
+
+    public static List<MatchedPassage> matchPassages(CharSequence query, CharSequence source) {
+        return matchPassages(query, source, defaultK(), defaultWindow());
+    }
+
+    public static List<MatchedPassage> matchPassages(CharSequence query, CharSequence source, int k, int window) {
+        Map<Long, List<Fingerprint>> sourceByHash = new HashMap<>();
+        for (Fingerprint fp : fingerprints(source, k, window)) {
+            sourceByHash.computeIfAbsent(fp.hash(), key -> new ArrayList<>(1)).add(fp);
+        }
+        List<MatchedPassage> raw = new ArrayList<>();
+        for (Fingerprint fp : fingerprints(query, k, window)) {
+            List<Fingerprint> hits = sourceByHash.get(fp.hash());
+            if (hits == null) continue;
+            for (Fingerprint s : hits) {
+                raw.add(new MatchedPassage(fp.start(), fp.end(), s.start(), s.end()));
+            }
+        }
+        return mergeMatches(raw);
+    }
+
+    // Joins fingerprint hits whose query and source ranges both overlap into maximal passages
+    public static List<MatchedPassage> mergeMatches(List<MatchedPassage> raw) {
+        if (raw.isEmpty()) return List.of();
+        List<MatchedPassage> sorted = new ArrayList<>(raw);
+        sorted.sort(Comparator.comparingInt(MatchedPassage::queryStart).thenComparingInt(MatchedPassage::sourceStart));
+        List<MatchedPassage> merged = new ArrayList<>();
+        List<int[]> open = new ArrayList<>();
+        for (MatchedPassage m : sorted) {
+            int[] target = null;
+            for (int[] span : open) {
+                if (m.queryStart() <= span[1] && m.sourceStart() <= span[3] && m.sourceEnd() >= span[2]) {
+                    target = span;
+                    break;
+                }
+            }
+            if (target == null) {
+                // Spans that can no longer be extended are finished
+                for (int i = open.size() - 1; i >= 0; i--) {
+                    int[] span = open.get(i);
+                    if (span[1] < m.queryStart()) {
+                        merged.add(new MatchedPassage(span[0], span[1], span[2], span[3]));
+                        open.remove(i);
+                    }
+                }
+                open.add(new int[]{m.queryStart(), m.queryEnd(), m.sourceStart(), m.sourceEnd()});
+            } else {
+                target[1] = Math.max(target[1], m.queryEnd());
+                target[2] = Math.min(target[2], m.sourceStart());
+                target[3] = Math.max(target[3], m.sourceEnd());
+            }
+        }
+        for (int[] span : open) {
+            merged.add(new MatchedPassage(span[0], span[1], span[2], span[3]));
+        }
+        merged.sort(Comparator.comparingInt(MatchedPassage::queryStart).thenComparingInt(MatchedPassage::sourceStart));
+        return merged;
+    }
+
+    // Number of query characters covered by at least one passage
+    public static int coveredQueryChars(List<MatchedPassage> passages) {
+        List<MatchedPassage> sorted = new ArrayList<>(passages);
+        sorted.sort(Comparator.comparingInt(MatchedPassage::queryStart));
+        int covered = 0;
+        int reach = Integer.MIN_VALUE;
+        for (MatchedPassage p : sorted) {
+            int start = Math.max(p.queryStart(), reach);
+            if (p.queryEnd() > start) {
+                covered += p.queryEnd() - start;
+            }
+            reach = Math.max(reach, p.queryEnd());
+        }
+        return covered;
+    }
+}
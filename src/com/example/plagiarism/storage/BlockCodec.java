@@ -0,0 +1,104 @@
+package com.example.plagiarism.storage;
+
+import com.example.plagiarism.Block;
+import com.example.plagiarism.Document;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Binary form of a {@link Block}: the index, then timestamp, hashes and document fields as
+ * length-prefixed UTF-8, with the plagiarism score as a double. Hashes are stored, not
+ * recomputed, so a decoded block verifies exactly like the original. The text may be left
+ * out when the caller stores it elsewhere.
+ */
+public class BlockCodec {
+
+    public static byte[] encode(Block block) {
+        return encode(block, true);
+    }
+
+    public static byte[] encode(Block block, boolean includeText) {
+        try {
+            Document d = block.getDocument();
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(256 + (includeText && d.getText() != null ? d.getText().length() : 0));
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeInt(block.getIndex());
+            writeString(out, block.getTimestamp());
+            writeString(out, block.getPreviousHash());
+            writeString(out, block.getHash());
+            writeString(out, d.getTitle());
+            writeString(out, d.getAuthor());
+            writeString(out, d.getSubmissionDate());
+            out.writeDouble(d.getPlagiarismScore());
+            writeString(out, includeText ? d.getText() : "");
+            writeString(out, d.getSourceUrl());
+            out.flush();
+            return bytes.toByteArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // ByteArrayOutputStream never throws
+        }
+    }
+
+    public static Block decode(byte[] data) throws IOException {
+        return decode(data, 0, data.length);
+    }
+
+    public static Block decode(byte[] data, int offset, int length) throws IOException {
+        return decode(data, offset, length, null);
+    }
+
+    // Where a decoded document gets its text from, given the stored text's position in data
+    interface TextLocator {
+        Document.TextSource locate(int offset, int length);
+    }
+
+    /**
+     * With a locator, the stored text is skipped and the document reads it through the
+     * source the locator returns; without one, the text is decoded into the document.
+     */
+    static Block decode(byte[] data, int offset, int length, TextLocator texts) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(data, offset, length));
+        int end = offset + length;
+        int index = in.readInt();
+        String timestamp = readString(in);
+        String previousHash = readString(in);
+        String hash = readString(in);
+        String title = readString(in);
+        String author = readString(in);
+        String date = readString(in);
+        double score = in.readDouble();
+        Document doc;
+        if (texts != null) {
+            int textLength = in.readInt();
+            if (textLength < 0 || textLength > in.available()) throw new IOException("Corrupt block record");
+            Document.TextSource text = texts.locate(end - in.available(), textLength);
+            if (in.skipBytes(textLength) != textLength) throw new IOException("Corrupt block record");
+            doc = new Document(title, author, date, text, readString(in));
+        } else {
+            String text = readString(in);
+            doc = new Document(title, author, date, text, readString(in));
+        }
+        doc.setPlagiarismScore(score);
+        return new Block(index, timestamp, doc, previousHash, hash);
+    }
+
+    static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = (value == null ? "" : value).getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0 || length > in.available()) throw new IOException("Corrupt block record");
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,506 @@
+package com.example.plagiarism.storage;
+
+import com.example.plagiarism.Block;
+import com.example.plagiarism.Blockchain;
+import com.example.plagiarism.Document;
+import com.example.plagiarism.config.AppConfig;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only block log: each block added to the chain becomes one framed record at the
+ * end of the file, so saving costs one record instead of rewriting the chain.
+ *
+ * File: 8-byte header (magic, version), then records of [payload length][CRC32 of
+ * payload][payload], little-endian. A payload is a type byte, the SHA-256 of the document
+ * text as 64 hex characters, and the {@link BlockCodec} form of the block. Each distinct
+ * text is written once: a later block with the same text is stored without it and gets it
+ * back from the earlier record on open, so duplicate texts also share one string in memory.
+ * Version 1 logs (plain BlockCodec payloads) are rewritten in the current format on open.
+ *
+ * Records are written in chain order from {@link #blockAdded}, which runs under the chain
+ * lock and only hands the bytes to the OS. Durability is separate: {@link #sync} forces the
+ * file, and concurrent callers share one fsync (group commit): the first becomes the
+ * leader, and the others wait for it when its force covers their records, or sync again.
+ *
+ * On open, records are read until the first one that is incomplete or fails its CRC; that
+ * torn tail, left by a crash in mid-append, is truncated away. The recovered documents do
+ * not hold their texts: each reads its bytes from a read-only mapping of the log (in 1 GiB
+ * chunks, see {@link MappedChunks}) on first use and keeps them in the shared
+ * {@link com.example.plagiarism.TextCache}. Version 1 logs are decoded in full.
+ */
+public class ChainLog implements Blockchain.Listener, Closeable {
+    private static final int MAGIC = 0x50434C47; // "PCLG"
+    private static final int VERSION = 2;
+    private static final int HEADER_BYTES = 8;
+    private static final int FRAME_BYTES = 8;
+    private static final int DIGEST_BYTES = 64;
+    private static final byte TEXT_INLINE = 0;
+    private static final byte TEXT_SHARED = 1;
+
+    private final Path file;
+    private final boolean syncEnabled;
+    private final List<Block> recovered;
+    private final long truncatedBytes;
+    private final Set<String> loggedTexts;
+    private volatile FileChannel channel; // replaced by rewrite(); sync() reads it without the monitor
+    private IOException failure; // set by a failed append; the file may no longer match the chain
+    private Blockchain chain; // set by attach(); a failed log is rewritten from it
+
+    // Group commit state, guarded by syncLock
+    private final Object syncLock = new Object();
+    private long writtenSeq;
+    private long durableSeq;
+    private boolean syncing;
+
+    private ChainLog(Path file, FileChannel channel, List<Block> recovered, long truncatedBytes, Set<String> loggedTexts,
+                     boolean syncEnabled) {
+        this.file = file;
+        this.channel = channel;
+        this.recovered = recovered;
+        this.truncatedBytes = truncatedBytes;
+        this.loggedTexts = loggedTexts;
+        this.syncEnabled = syncEnabled;
+    }
+
+    // fsync on sync() unless storage.log.sync is false in AppConfig
+    public static ChainLog open(Path file) throws IOException {
+        return open(file, AppConfig.getInstance().getBoolean("storage.log.sync", true));
+    }
+
+    public static ChainLog open(Path file, boolean syncEnabled) throws IOException {
+        return open(file, syncEnabled, MappedChunks.DEFAULT_CHUNK_BYTES);
+    }
+
+    // Smaller chunks let tests read texts that straddle a chunk boundary
+    static ChainLog open(Path file, boolean syncEnabled, int mapChunkBytes) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        ChainLog log;
+        int version = VERSION;
+        try {
+            List<Block> blocks = new ArrayList<>();
+            Set<String> loggedTexts = new HashSet<>();
+            long size = channel.size();
+            LogMapping mapping = new LogMapping();
+            long validEnd;
+            if (size == 0) {
+                ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+                header.putInt(MAGIC).putInt(VERSION).flip();
+                writeFully(channel, header, 0);
+                channel.force(true);
+                validEnd = HEADER_BYTES;
+            } else {
+                version = readVersion(channel, file);
+                validEnd = recover(channel, version, mapping, blocks, loggedTexts);
+            }
+            long truncated = channel.size() - validEnd;
+            if (truncated > 0) {
+                channel.truncate(validEnd);
+                channel.force(true);
+            }
+            // Appends never touch the first validEnd bytes, and a rewrite replaces the file
+            // rather than changing it, so the mapping stays valid for the life of the blocks
+            mapping.data = MappedChunks.map(channel, validEnd, mapChunkBytes, ByteOrder.LITTLE_ENDIAN);
+            channel.position(validEnd);
+            log = new ChainLog(file, channel, Collections.unmodifiableList(blocks), truncated, loggedTexts, syncEnabled);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+        // The log owns the channel from here on; rewrite may replace it
+        if (version < VERSION) {
+            try {
+                log.rewrite(log.recovered);
+            } catch (IOException | RuntimeException e) {
+                try {
+                    log.channel.close();
+                } catch (IOException closeFailure) {
+                    e.addSuppressed(closeFailure);
+                }
+                throw e;
+            }
+        }
+        return log;
+    }
+
+    /**
+     * Opens the log and binds it to the chain: a non-empty log replaces the chain's blocks,
+     * an empty one is seeded with the chain's current blocks, and every later block is
+     * appended as it is added.
+     */
+    public static ChainLog attach(Blockchain blockchain, Path file) throws IOException {
+        ChainLog log = open(file);
+        synchronized (blockchain) {
+            if (!log.recovered.isEmpty()) {
+                blockchain.clearAndLoad(new ArrayList<>(log.recovered));
+            } else {
+                for (Block block : blockchain.getBlocks()) {
+                    log.append(block);
+                }
+            }
+            blockchain.addListener(log);
+            synchronized (log) {
+                log.chain = blockchain;
+            }
+        }
+        log.sync();
+        return log;
+    }
+
+    // Blocks read back when the log was opened, in file order
+    public List<Block> recoveredBlocks() {
+        return recovered;
+    }
+
+    // Bytes of torn tail removed when the log was opened
+    public long truncatedBytes() {
+        return truncatedBytes;
+    }
+
+    public Path file() {
+        return file;
+    }
+
+    @Override
+    public void blockAdded(Block block) {
+        try {
+            append(block);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to append block " + block.getIndex() + " to " + file, e);
+        }
+    }
+
+    // Loading a different chain rewrites the log to match it
+    @Override
+    public void chainReplaced(List<Block> blocks) {
+        try {
+            rewrite(blocks);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to rewrite " + file, e);
+        }
+    }
+
+    /**
+     * Writes one record; it is durable after the next sync(). A write that fails partway is
+     * cut off again, since a torn record in the middle would hide every later record on the
+     * next open. Either way the log is marked failed: the next append or sync rewrites the
+     * whole file from the attached chain, and a log without one refuses further appends.
+     */
+    public synchronized void append(Block block) throws IOException {
+        if (failure != null) {
+            if (chain == null) throw new IOException("Chain log " + file + " is unusable after a failed write", failure);
+            // The chain already holds this block, so the rewrite logs it too
+            rewrite(chain.getBlocks());
+            return;
+        }
+        String digest = block.getDocument().contentHash();
+        ByteBuffer record = frame(payload(block, digest, loggedTexts.contains(digest)));
+        long start = channel.position();
+        try {
+            while (record.hasRemaining()) channel.write(record);
+        } catch (IOException e) {
+            try {
+                channel.truncate(start);
+                channel.position(start);
+            } catch (IOException truncateFailure) {
+                e.addSuppressed(truncateFailure);
+            }
+            failure = e;
+            throw e;
+        }
+        loggedTexts.add(digest);
+        synchronized (syncLock) {
+            writtenSeq++;
+        }
+    }
+
+    /**
+     * Returns once every record written before the call is on disk. A thread arriving while
+     * another is forcing waits for it; if that force started before this thread's records
+     * were written, one more force covers everything written meanwhile.
+     */
+    public void sync() throws IOException {
+        repairIfFailed();
+        if (!syncEnabled) return;
+        long covered;
+        synchronized (syncLock) {
+            long target = writtenSeq;
+            while (durableSeq < target && syncing) {
+                try {
+                    syncLock.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Interrupted while waiting for log sync", e);
+                }
+            }
+            if (durableSeq >= target) return;
+            syncing = true;
+            covered = writtenSeq;
+        }
+        FileChannel current = channel;
+        try {
+            current.force(false);
+        } catch (ClosedChannelException e) {
+            // A rewrite swapped in a new file meanwhile; it forced that file itself
+            if (channel == current) throw e;
+        } finally {
+            synchronized (syncLock) {
+                syncing = false;
+                if (covered > durableSeq) durableSeq = covered;
+                syncLock.notifyAll();
+            }
+        }
+    }
+
+    // Rewrites a failed log from the chain, taking the chain lock first as blockAdded does
+    private void repairIfFailed() throws IOException {
+        Blockchain attached;
+        synchronized (this) {
+            if (failure == null) return;
+            if (chain == null) throw new IOException("Chain log " + file + " is unusable after a failed write", failure);
+            attached = chain;
+        }
+        synchronized (attached) {
+            synchronized (this) {
+                if (failure != null) rewrite(attached.getBlocks());
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            sync();
+        } finally {
+            synchronized (this) {
+                channel.close();
+            }
+        }
+    }
+
+    // Replaces the file with one holding exactly these blocks, via a synced temp file and rename
+    private synchronized void rewrite(List<Block> blocks) throws IOException {
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        Set<String> written = new HashSet<>();
+        FileChannel replacement = null;
+        boolean moved = false;
+        try {
+            try (FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+                header.putInt(MAGIC).putInt(VERSION).flip();
+                while (header.hasRemaining()) out.write(header);
+                for (Block block : blocks) {
+                    String digest = block.getDocument().contentHash();
+                    ByteBuffer record = frame(payload(block, digest, !written.add(digest)));
+                    while (record.hasRemaining()) out.write(record);
+                }
+                out.force(true);
+            }
+            // Open the new file before the rename (the channel follows it), so a failure at any
+            // step leaves this log on the old, still valid file
+            replacement = FileChannel.open(temp, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            replacement.position(replacement.size());
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            moved = true;
+        } finally {
+            if (!moved) {
+                if (replacement != null) closeQuietly(replacement);
+                try {
+                    Files.deleteIfExists(temp);
+                } catch (IOException e) {
+                    System.err.println("Chain log: failed to delete " + temp + ": " + e.getMessage());
+                }
+            }
+        }
+        FileChannel old = channel;
+        channel = replacement;
+        failure = null;
+        loggedTexts.clear();
+        loggedTexts.addAll(written);
+        closeQuietly(old);
+        forceDirectory(file.toAbsolutePath().getParent());
+        synchronized (syncLock) {
+            writtenSeq++;
+            durableSeq = writtenSeq;
+        }
+    }
+
+    // A rename is only durable once the directory entry is; not every platform can open a directory
+    private static void forceDirectory(Path directory) throws IOException {
+        FileChannel dir;
+        try {
+            dir = FileChannel.open(directory, StandardOpenOption.READ);
+        } catch (IOException e) {
+            return;
+        }
+        try (dir) {
+            dir.force(true);
+        }
+    }
+
+    private static void closeQuietly(FileChannel channel) {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            System.err.println("Chain log: failed to close replaced file: " + e.getMessage());
+        }
+    }
+
+    // Type, digest and block; a shared text is left out because an earlier record holds it
+    private static byte[] payload(Block block, String digest, boolean shared) {
+        byte[] encoded = BlockCodec.encode(block, !shared);
+        ByteBuffer payload = ByteBuffer.allocate(1 + DIGEST_BYTES + encoded.length);
+        payload.put(shared ? TEXT_SHARED : TEXT_INLINE).put(digest.getBytes(StandardCharsets.US_ASCII)).put(encoded);
+        return payload.array();
+    }
+
+    private static ByteBuffer frame(byte[] payload) {
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        ByteBuffer record = ByteBuffer.allocate(FRAME_BYTES + payload.length).order(ByteOrder.LITTLE_ENDIAN);
+        record.putInt(payload.length).putInt((int) crc.getValue()).put(payload).flip();
+        return record;
+    }
+
+    private static int readVersion(FileChannel channel, Path file) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        if (readFully(channel, header, 0) < HEADER_BYTES || header.getInt(0) != MAGIC) {
+            throw new IOException("Not a chain log: " + file);
+        }
+        int version = header.getInt(4);
+        if (version < 1 || version > VERSION) throw new IOException("Unsupported chain log version " + version);
+        return version;
+    }
+
+    /**
+     * Reads records into blocks and the digests of their texts into loggedTexts; returns the
+     * offset just past the last intact record. The texts of current-format records are left
+     * in the file and read through the mapping that open() sets up afterwards.
+     */
+    private static long recover(FileChannel channel, int version, LogMapping mapping, List<Block> blocks,
+                                Set<String> loggedTexts) throws IOException {
+        long size = channel.size();
+        Map<String, Document.TextSource> texts = new HashMap<>();
+        long offset = HEADER_BYTES;
+        ByteBuffer frame = ByteBuffer.allocate(FRAME_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        while (offset + FRAME_BYTES <= size) {
+            frame.clear();
+            if (readFully(channel, frame, offset) < FRAME_BYTES) break;
+            int length = frame.getInt(0);
+            int expectedCrc = frame.getInt(4);
+            if (length < 0 || offset + FRAME_BYTES + length > size) break;
+            ByteBuffer payload = ByteBuffer.allocate(length);
+            if (readFully(channel, payload, offset + FRAME_BYTES) < length) break;
+            CRC32 crc = new CRC32();
+            crc.update(payload.array());
+            if ((int) crc.getValue() != expectedCrc) break;
+            Block block;
+            try {
+                block = version == 1
+                        ? BlockCodec.decode(payload.array())
+                        : decodePayload(payload.array(), offset + FRAME_BYTES, mapping, texts);
+            } catch (IOException e) {
+                break;
+            }
+            blocks.add(block);
+            offset += FRAME_BYTES + length;
+        }
+        loggedTexts.addAll(texts.keySet());
+        return offset;
+    }
+
+    // A shared record gets the text source of the record that holds its text, so both share one cached string
+    private static Block decodePayload(byte[] payload, long position, LogMapping mapping,
+                                       Map<String, Document.TextSource> texts) throws IOException {
+        int header = 1 + DIGEST_BYTES;
+        if (payload.length < header) throw new IOException("Corrupt chain log record");
+        String digest = new String(payload, 1, DIGEST_BYTES, StandardCharsets.US_ASCII);
+        if (payload[0] == TEXT_SHARED) {
+            Document.TextSource text = texts.get(digest);
+            if (text == null) throw new IOException("Chain log record refers to an unknown text");
+            return BlockCodec.decode(payload, header, payload.length - header, (offset, length) -> text);
+        }
+        if (payload[0] != TEXT_INLINE) throw new IOException("Corrupt chain log record");
+        Document.TextSource[] located = new Document.TextSource[1];
+        Block block = BlockCodec.decode(payload, header, payload.length - header, (offset, length) ->
+                located[0] = new LogText(mapping, position + offset, length, digest));
+        texts.put(digest, located[0]);
+        return block;
+    }
+
+    private static int readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        int total = 0;
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position + total);
+            if (read < 0) break;
+            total += read;
+        }
+        return total;
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        int total = 0;
+        while (buffer.hasRemaining()) {
+            total += channel.write(buffer, position + total);
+        }
+    }
+
+    // Bytes the recovered texts are read from; open() sets the mapping once the torn tail is gone
+    private static class LogMapping {
+        volatile MappedChunks data;
+    }
+
+    // UTF-8 text of one record, loaded on first use through the TextCache
+    private static class LogText implements Document.TextSource {
+        private final LogMapping mapping;
+        private final long offset;
+        private final int length;
+        private final String digest;
+
+        LogText(LogMapping mapping, long offset, int length, String digest) {
+            this.mapping = mapping;
+            this.offset = offset;
+            this.length = length;
+            this.digest = digest;
+        }
+
+        @Override
+        public String contentHash() {
+            return digest;
+        }
+
+        @Override
+        public String load() {
+            byte[] bytes = new byte[length];
+            mapping.data.get(offset, bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public InputStream open() {
+            return mapping.data.stream(offset, length);
+        }
+    }
+}
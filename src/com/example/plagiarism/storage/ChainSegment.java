@@ -0,0 +1,550 @@
+package com.example.plagiarism.storage;
+
+import com.example.plagiarism.Block;
+import com.example.plagiarism.Document;
+import com.example.plagiarism.TextCache;
+import com.example.plagiarism.config.AppConfig;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A whole chain in one binary file, read through a memory map.
+ *
+ * Layout: a 32-byte header (magic, version, block count, dictionary length, index offset,
+ * blob table offset), the compression dictionary, the texts, the records, the blob table,
+ * then the index: one long file offset per block. Opening reads only the header and
+ * dictionary, so it takes the same time for any chain length. Blocks are decoded one at a
+ * time as they are asked for, optionally leaving each document's text in the file until
+ * it is read.
+ *
+ * A record is [length][index][flags][previous hash: 32 bytes][hash: 32 bytes] followed by
+ * the timestamp, document fields and score as in {@link BlockCodec}. Hashes are stored as
+ * raw SHA-256 bytes, so {@link #hash} and {@link #previousHash} read at fixed positions
+ * without decoding the block. All numbers are big-endian.
+ *
+ * The file is mapped in 1 GiB chunks ({@link MappedChunks}) and every offset is a long, so
+ * a segment may be of any size.
+ *
+ * Texts are content-addressed (version 3): each distinct text is stored once as a blob,
+ * deflated with a dictionary trained on the chain's texts ({@link TextCompressor}) when that
+ * makes it smaller, and a record holds the SHA-256 of its text in place of the text. The
+ * blob table maps digests, sorted, to blob positions, so a text checked a thousand times
+ * costs one blob and a thousand 32-byte references, and {@link #containsText} answers
+ * exact-duplicate queries by binary search. Documents sharing a blob share one
+ * {@link Document.TextSource}, hence one cached string. A blob's first load checks it
+ * against its digest, so a damaged text is reported instead of returned.
+ *
+ * Older versions keep the text inside the record: raw in version 1, optionally deflated
+ * in version 2 (with a flag and the raw length). Both are still readable.
+ */
+public class ChainSegment implements Closeable {
+    public static final int MAGIC = 0x50435347; // "PCSG"
+    private static final int VERSION = 3;
+    private static final int HEADER_BYTES = 32;
+    private static final int HASH_BYTES = 32;
+    private static final int FIXED_BYTES = 4 + 4 + 1 + HASH_BYTES * 2; // length .. hash
+    private static final int FLAG_NO_PREVIOUS = 1;
+    private static final int FLAG_TEXT_DEFLATED = 2;
+    private static final int FLAG_TEXT_BLOB = 4;
+    private static final int BLOB_ENTRY_BYTES = HASH_BYTES + 8 + 4 + 4; // digest, offset, length, raw length
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    private final FileChannel channel;
+    private final MappedChunks data;
+    private final int blockCount;
+    private final long indexOffset;
+    private final long blobTableOffset;
+    private final int blobCount;
+    private final TextCompressor compressor;
+    private final Map<Integer, MappedText> blobTexts = new ConcurrentHashMap<>();
+
+    private ChainSegment(FileChannel channel, MappedChunks data, int blockCount, long indexOffset, long blobTableOffset,
+                         int blobCount, TextCompressor compressor) {
+        this.channel = channel;
+        this.data = data;
+        this.blockCount = blockCount;
+        this.indexOffset = indexOffset;
+        this.blobTableOffset = blobTableOffset;
+        this.blobCount = blobCount;
+        this.compressor = compressor;
+    }
+
+    // Compresses texts unless storage.segment.compress is false in AppConfig
+    public static void write(List<Block> blocks, Path file) throws IOException {
+        AppConfig config = AppConfig.getInstance();
+        int dictionaryBytes = config.getBoolean("storage.segment.compress", true)
+                ? config.getInt("storage.segment.dictionary_bytes", TextCompressor.MAX_DICTIONARY_BYTES) : -1;
+        write(blocks, file, dictionaryBytes);
+    }
+
+    /**
+     * Writes a temp file, forces it, then renames it over the target. Each distinct text is
+     * written once, compressed with a dictionary of up to dictionaryBytes trained on the
+     * distinct texts; a negative value stores them uncompressed.
+     */
+    public static void write(List<Block> blocks, Path file, int dictionaryBytes) throws IOException {
+        TextCompressor compressor = null;
+        if (dictionaryBytes >= 0) {
+            compressor = new TextCompressor(TextCompressor.train(sampleTexts(blocks), dictionaryBytes));
+        }
+        byte[] dictionary = compressor == null ? new byte[0] : compressor.dictionary();
+
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            long position = HEADER_BYTES;
+            position += writeFully(out, ByteBuffer.wrap(dictionary), position);
+
+            // One text at a time, so lazily loaded texts pass through the TextCache and are released
+            Set<String> written = new HashSet<>();
+            List<byte[]> blobEntries = new ArrayList<>();
+            for (Block block : blocks) {
+                Document d = block.getDocument();
+                String digest = d.contentHash();
+                if (!written.add(digest)) continue;
+                byte[] raw = d.getText().getBytes(StandardCharsets.UTF_8);
+                byte[] deflated = compressor == null ? null : compressor.compress(raw);
+                byte[] stored = deflated != null ? deflated : raw;
+                ByteBuffer entry = ByteBuffer.allocate(BLOB_ENTRY_BYTES);
+                entry.put(unhex(digest)).putLong(position).putInt(stored.length).putInt(deflated != null ? raw.length : -1);
+                blobEntries.add(entry.array());
+                position += writeFully(out, ByteBuffer.wrap(stored), position);
+            }
+
+            long[] offsets = new long[blocks.size()];
+            for (int i = 0; i < blocks.size(); i++) {
+                offsets[i] = position;
+                position += writeFully(out, ByteBuffer.wrap(encode(blocks.get(i))), position);
+            }
+
+            long blobTableOffset = position;
+            blobEntries.sort((a, b) -> Arrays.compareUnsigned(a, 0, HASH_BYTES, b, 0, HASH_BYTES));
+            for (byte[] entry : blobEntries) {
+                position += writeFully(out, ByteBuffer.wrap(entry), position);
+            }
+
+            ByteBuffer index = ByteBuffer.allocate(offsets.length * Long.BYTES);
+            index.asLongBuffer().put(offsets);
+            long indexOffset = position;
+            writeFully(out, index, indexOffset);
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            header.putInt(MAGIC).putInt(VERSION).putInt(blocks.size()).putInt(dictionary.length).putLong(indexOffset)
+                    .putLong(blobTableOffset).flip();
+            writeFully(out, header, 0);
+            out.force(true);
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    public static ChainSegment open(Path file) throws IOException {
+        return open(file, MappedChunks.DEFAULT_CHUNK_BYTES);
+    }
+
+    // Smaller chunks let tests read records and texts that straddle a chunk boundary
+    static ChainSegment open(Path file, int mapChunkBytes) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            long size = channel.size();
+            if (size < HEADER_BYTES) throw new IOException("Not a chain segment: " + file);
+            MappedChunks data = MappedChunks.map(channel, size, mapChunkBytes, ByteOrder.BIG_ENDIAN);
+            if (data.getInt(0) != MAGIC) throw new IOException("Not a chain segment: " + file);
+            int version = data.getInt(4);
+            if (version < 1 || version > VERSION) throw new IOException("Unsupported chain segment version " + version);
+            int blockCount = data.getInt(8);
+            int dictionaryLength = data.getInt(12);
+            long indexOffset = data.getLong(16);
+            if (blockCount < 0 || dictionaryLength < 0 || indexOffset < HEADER_BYTES + (long) dictionaryLength
+                    || indexOffset + (long) blockCount * Long.BYTES != size) {
+                throw new IOException("Corrupt chain segment header: " + file);
+            }
+            long blobTableOffset = version >= 3 ? data.getLong(24) : indexOffset;
+            if (blobTableOffset < HEADER_BYTES + (long) dictionaryLength || blobTableOffset > indexOffset
+                    || (indexOffset - blobTableOffset) % BLOB_ENTRY_BYTES != 0
+                    || (indexOffset - blobTableOffset) / BLOB_ENTRY_BYTES > Integer.MAX_VALUE) {
+                throw new IOException("Corrupt chain segment header: " + file);
+            }
+            int blobCount = (int) ((indexOffset - blobTableOffset) / BLOB_ENTRY_BYTES);
+            byte[] dictionary = new byte[dictionaryLength];
+            data.get(HEADER_BYTES, dictionary);
+            return new ChainSegment(channel, data, blockCount, indexOffset, blobTableOffset, blobCount,
+                    new TextCompressor(dictionary));
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    // Up to TextCompressor.MAX_SAMPLES distinct texts spread over the chain, for training
+    private static List<String> sampleTexts(List<Block> blocks) {
+        int step = Math.max(1, blocks.size() / TextCompressor.MAX_SAMPLES);
+        Set<String> sampled = new HashSet<>();
+        List<String> texts = new ArrayList<>();
+        for (int i = 0; i < blocks.size() && texts.size() < TextCompressor.MAX_SAMPLES; i += step) {
+            Document d = blocks.get(i).getDocument();
+            if (sampled.add(d.contentHash())) texts.add(d.getText());
+        }
+        return texts;
+    }
+
+    // True if the file starts with the segment magic number
+    public static boolean isSegment(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer magic = ByteBuffer.allocate(4);
+            return channel.read(magic, 0) == 4 && magic.getInt(0) == MAGIC;
+        }
+    }
+
+    public int size() {
+        return blockCount;
+    }
+
+    // Number of distinct texts stored
+    public int blobCount() {
+        return blobCount;
+    }
+
+    // True if some block's text has this SHA-256 (hex), without decoding any block
+    public boolean containsText(String digest) {
+        return digest.length() == HASH_BYTES * 2 && findBlob(unhex(digest)) >= 0;
+    }
+
+    public Block block(int i) throws IOException {
+        return block(i, false);
+    }
+
+    /**
+     * Decodes block i. With lazyText the document keeps only a handle to its text in the
+     * mapped file; the text is read on first use and held in the {@link TextCache}.
+     */
+    public Block block(int i, boolean lazyText) throws IOException {
+        long offset = recordOffset(i);
+        int length = data.getInt(offset);
+        if (length < FIXED_BYTES || offset + length > blobTableOffset) throw new IOException("Corrupt record " + i);
+        return decode(data.slice(offset, length), offset, lazyText);
+    }
+
+    // Every block in chain order
+    public List<Block> blocks(boolean lazyText) throws IOException {
+        List<Block> blocks = new ArrayList<>(blockCount);
+        for (int i = 0; i < blockCount; i++) {
+            blocks.add(block(i, lazyText));
+        }
+        return blocks;
+    }
+
+    public String hash(int i) {
+        return hex(recordOffset(i) + 9 + HASH_BYTES);
+    }
+
+    public String previousHash(int i) {
+        long offset = recordOffset(i);
+        return (data.get(offset + 8) & FLAG_NO_PREVIOUS) != 0 ? "" : hex(offset + 9);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private long recordOffset(int i) {
+        if (i < 0 || i >= blockCount) throw new IndexOutOfBoundsException("Block " + i + " outside 0.." + (blockCount - 1));
+        long offset = data.getLong(indexOffset + (long) i * Long.BYTES);
+        if (offset < HEADER_BYTES || offset + FIXED_BYTES > blobTableOffset) {
+            throw new IllegalStateException("Corrupt offset index entry " + i);
+        }
+        return offset;
+    }
+
+    private String hex(long offset) {
+        byte[] bytes = new byte[HASH_BYTES];
+        data.get(offset, bytes);
+        return hex(bytes);
+    }
+
+    private static byte[] encode(Block block) throws IOException {
+        Document d = block.getDocument();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        DataOutputStream out = new DataOutputStream(bytes);
+        boolean noPrevious = block.getPreviousHash().isEmpty();
+        out.writeInt(0); // length, patched below
+        out.writeInt(block.getIndex());
+        out.writeByte((noPrevious ? FLAG_NO_PREVIOUS : 0) | FLAG_TEXT_BLOB);
+        out.write(noPrevious ? new byte[HASH_BYTES] : blockHash(block.getPreviousHash(), block));
+        out.write(blockHash(block.getHash(), block));
+        BlockCodec.writeString(out, block.getTimestamp());
+        BlockCodec.writeString(out, d.getTitle());
+        BlockCodec.writeString(out, d.getAuthor());
+        BlockCodec.writeString(out, d.getSubmissionDate());
+        out.writeDouble(d.getPlagiarismScore());
+        out.write(unhex(d.contentHash()));
+        BlockCodec.writeString(out, d.getSourceUrl());
+        out.flush();
+        byte[] record = bytes.toByteArray();
+        ByteBuffer.wrap(record).putInt(0, record.length);
+        return record;
+    }
+
+    private Block decode(ByteBuffer record, long recordOffset, boolean lazyText) throws IOException {
+        try {
+            record.position(4);
+            int index = record.getInt();
+            int flags = record.get() & 0xFF;
+            byte[] previous = new byte[HASH_BYTES];
+            byte[] hash = new byte[HASH_BYTES];
+            record.get(previous);
+            record.get(hash);
+            String timestamp = readString(record);
+            String title = readString(record);
+            String author = readString(record);
+            String date = readString(record);
+            double score = record.getDouble();
+            MappedText text;
+            if ((flags & FLAG_TEXT_BLOB) != 0) {
+                byte[] digest = new byte[HASH_BYTES];
+                record.get(digest);
+                int blob = findBlob(digest);
+                if (blob < 0) throw new IOException("Block record at offset " + recordOffset + " refers to a missing text");
+                text = blobTexts.computeIfAbsent(blob, this::blobText);
+            } else {
+                int rawLength = (flags & FLAG_TEXT_DEFLATED) != 0 ? record.getInt() : -1;
+                int textLength = stringLength(record);
+                text = new MappedText(compressor, data, recordOffset + record.position(), textLength, rawLength, null);
+                record.position(record.position() + textLength);
+            }
+            Document doc = lazyText
+                    ? new Document(title, author, date, text, readString(record))
+                    : new Document(title, author, date, text.read(), readString(record));
+            doc.setPlagiarismScore(score);
+            String previousHash = (flags & FLAG_NO_PREVIOUS) != 0 ? "" : hex(previous);
+            return new Block(index, timestamp, doc, previousHash, hex(hash));
+        } catch (BufferUnderflowException e) {
+            throw new IOException("Corrupt block record at offset " + recordOffset, e);
+        }
+    }
+
+    // Index of the blob table entry with this digest, or -1
+    private int findBlob(byte[] digest) {
+        int lo = 0;
+        int hi = blobCount - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            long entry = blobTableOffset + (long) mid * BLOB_ENTRY_BYTES;
+            int cmp = 0;
+            for (int k = 0; k < HASH_BYTES && cmp == 0; k++) {
+                cmp = Integer.compare(data.get(entry + k) & 0xFF, digest[k] & 0xFF);
+            }
+            if (cmp == 0) return mid;
+            if (cmp < 0) lo = mid + 1; else hi = mid - 1;
+        }
+        return -1;
+    }
+
+    private MappedText blobText(int blob) {
+        long entry = blobTableOffset + (long) blob * BLOB_ENTRY_BYTES;
+        long offset = data.getLong(entry + HASH_BYTES);
+        int length = data.getInt(entry + HASH_BYTES + 8);
+        int rawLength = data.getInt(entry + HASH_BYTES + 12);
+        if (offset < HEADER_BYTES || length < 0 || offset + length > blobTableOffset) {
+            throw new IllegalStateException("Corrupt blob table entry " + blob);
+        }
+        return new MappedText(compressor, data, offset, length, rawLength, hex(entry));
+    }
+
+    /**
+     * Text of one document inside the mapped file, deflated if rawLength >= 0; the mapping
+     * outlives the channel. A blob text (digest set) is checked against its digest on its
+     * first read.
+     */
+    private static class MappedText implements Document.TextSource {
+        private final TextCompressor compressor;
+        private final MappedChunks data;
+        private final long offset;
+        private final int length;
+        private final int rawLength;
+        private final String digest;
+        private volatile boolean verified;
+
+        MappedText(TextCompressor compressor, MappedChunks data, long offset, int length, int rawLength, String digest) {
+            this.compressor = compressor;
+            this.data = data;
+            this.offset = offset;
+            this.length = length;
+            this.rawLength = rawLength;
+            this.digest = digest;
+        }
+
+        @Override
+        public String contentHash() {
+            return digest;
+        }
+
+        String read() throws IOException {
+            String text;
+            if (rawLength >= 0) {
+                text = compressor.inflate(data.slice(offset, length), rawLength);
+            } else {
+                byte[] bytes = new byte[length];
+                data.get(offset, bytes);
+                text = new String(bytes, StandardCharsets.UTF_8);
+            }
+            if (digest != null && !verified) {
+                if (!digest.equals(sha256(text))) throw new IOException("Text at offset " + offset + " does not match its digest");
+                verified = true;
+            }
+            return text;
+        }
+
+        private static String sha256(String text) {
+            try {
+                return hex(MessageDigest.getInstance("SHA-256").digest(text.getBytes(StandardCharsets.UTF_8)));
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException("SHA-256 not available", e);
+            }
+        }
+
+        @Override
+        public String load() {
+            try {
+                return read();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        public InputStream open() {
+            InputStream in = rawLength >= 0
+                    ? compressor.inflateStream(data.slice(offset, length), rawLength)
+                    : data.stream(offset, length);
+            return digest == null || verified ? in : new VerifyingStream(in, this);
+        }
+    }
+
+    // Checks a text's digest once the stream has been read to the end
+    private static class VerifyingStream extends FilterInputStream {
+        private final MessageDigest sha256;
+        private final MappedText text;
+
+        VerifyingStream(InputStream in, MappedText text) {
+            super(in);
+            this.text = text;
+            try {
+                sha256 = MessageDigest.getInstance("SHA-256");
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException("SHA-256 not available", e);
+            }
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = in.read();
+            if (b < 0) verify();
+            else sha256.update((byte) b);
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = in.read(b, off, len);
+            if (n < 0) verify();
+            else sha256.update(b, off, n);
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            // Skipped bytes must still be hashed
+            byte[] buffer = new byte[8192];
+            long skipped = 0;
+            while (skipped < n) {
+                int r = read(buffer, 0, (int) Math.min(buffer.length, n - skipped));
+                if (r < 0) break;
+                skipped += r;
+            }
+            return skipped;
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+
+        private void verify() throws IOException {
+            if (text.verified) return;
+            if (!text.digest.equals(hex(sha256.digest()))) {
+                throw new IOException("Text at offset " + text.offset + " does not match its digest");
+            }
+            text.verified = true;
+        }
+    }
+
+    private static int stringLength(ByteBuffer record) throws IOException {
+        int length = record.getInt();
+        if (length < 0 || length > record.remaining()) throw new IOException("Corrupt block record");
+        return length;
+    }
+
+    private static String readString(ByteBuffer record) throws IOException {
+        byte[] bytes = new byte[stringLength(record)];
+        record.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static String hex(byte[] bytes) {
+        char[] chars = new char[bytes.length * 2];
+        for (int k = 0; k < bytes.length; k++) {
+            chars[2 * k] = HEX_DIGITS[(bytes[k] >> 4) & 0xF];
+            chars[2 * k + 1] = HEX_DIGITS[bytes[k] & 0xF];
+        }
+        return new String(chars);
+    }
+
+    // Block hashes are SHA-256 in lowercase hex; anything else cannot use the fixed-width field
+    private static byte[] blockHash(String hash, Block block) throws IOException {
+        if (hash.length() != HASH_BYTES * 2 || !hash.chars().allMatch(c -> (c >= '0' && c <= '9') || (c >= 'a' && c <= 'f'))) {
+            throw new IOException("Block " + block.getIndex() + " has a hash that is not SHA-256 hex");
+        }
+        return unhex(hash);
+    }
+
+    private static byte[] unhex(String hex) {
+        byte[] bytes = new byte[hex.length() / 2];
+        for (int k = 0; k < bytes.length; k++) {
+            bytes[k] = (byte) (Character.digit(hex.charAt(2 * k), 16) << 4 | Character.digit(hex.charAt(2 * k + 1), 16));
+        }
+        return bytes;
+    }
+
+    private static int writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        int total = 0;
+        while (buffer.hasRemaining()) {
+            total += channel.write(buffer, position + total);
+        }
+        return total;
+    }
+}
@@ -0,0 +1,124 @@
+package com.example.plagiarism.storage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.Objects;
+
+/**
+ * Read-only mapping of the first size bytes of a file, as a row of buffers of chunkBytes
+ * each (1 GiB by default) because one buffer cannot exceed 2 GiB. Positions are longs;
+ * reads that cross a chunk boundary are stitched together. Like any mapping, it stays
+ * valid after the channel it was made from is closed.
+ */
+class MappedChunks {
+    static final int DEFAULT_CHUNK_BYTES = 1 << 30;
+
+    private final ByteBuffer[] chunks;
+    private final int chunkBytes;
+    private final long size;
+    private final ByteOrder order;
+
+    private MappedChunks(ByteBuffer[] chunks, int chunkBytes, long size, ByteOrder order) {
+        this.chunks = chunks;
+        this.chunkBytes = chunkBytes;
+        this.size = size;
+        this.order = order;
+    }
+
+    static MappedChunks map(FileChannel channel, long size, int chunkBytes, ByteOrder order) throws IOException {
+        if (chunkBytes <= 0) throw new IllegalArgumentException("chunkBytes must be positive");
+        int count = (int) ((size + chunkBytes - 1) / chunkBytes);
+        ByteBuffer[] chunks = new ByteBuffer[count];
+        for (int c = 0; c < count; c++) {
+            long start = (long) c * chunkBytes;
+            chunks[c] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(chunkBytes, size - start)).order(order);
+        }
+        return new MappedChunks(chunks, chunkBytes, size, order);
+    }
+
+    long size() {
+        return size;
+    }
+
+    byte get(long position) {
+        check(position, 1);
+        return chunks[(int) (position / chunkBytes)].get((int) (position % chunkBytes));
+    }
+
+    int getInt(long position) {
+        check(position, 4);
+        int offset = (int) (position % chunkBytes);
+        if (offset + 4 <= chunkBytes) return chunks[(int) (position / chunkBytes)].getInt(offset);
+        return stitched(position, 4).getInt();
+    }
+
+    long getLong(long position) {
+        check(position, 8);
+        int offset = (int) (position % chunkBytes);
+        if (offset + 8 <= chunkBytes) return chunks[(int) (position / chunkBytes)].getLong(offset);
+        return stitched(position, 8).getLong();
+    }
+
+    void get(long position, byte[] dst) {
+        check(position, dst.length);
+        int copied = 0;
+        while (copied < dst.length) {
+            long at = position + copied;
+            int offset = (int) (at % chunkBytes);
+            int n = Math.min(dst.length - copied, chunkBytes - offset);
+            chunks[(int) (at / chunkBytes)].duplicate().position(offset).get(dst, copied, n);
+            copied += n;
+        }
+    }
+
+    // The bytes as one buffer: a view when they lie in one chunk, a heap copy when they straddle two
+    ByteBuffer slice(long position, int length) {
+        check(position, length);
+        int offset = (int) (position % chunkBytes);
+        if (offset + length <= chunkBytes) {
+            return chunks[(int) (position / chunkBytes)].duplicate().position(offset).limit(offset + length)
+                    .slice().order(order);
+        }
+        return stitched(position, length);
+    }
+
+    // The bytes read in place, chunk by chunk, without stitching them into one array
+    InputStream stream(long position, int length) {
+        check(position, length);
+        long end = position + length;
+        return new InputStream() {
+            private long at = position;
+
+            @Override
+            public int read() {
+                return at < end ? get(at++) & 0xff : -1;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) {
+                Objects.checkFromIndexSize(off, len, b.length);
+                if (at >= end) return -1;
+                int offset = (int) (at % chunkBytes);
+                int n = (int) Math.min(len, Math.min(end - at, chunkBytes - offset));
+                chunks[(int) (at / chunkBytes)].duplicate().position(offset).get(b, off, n);
+                at += n;
+                return n;
+            }
+        };
+    }
+
+    private ByteBuffer stitched(long position, int length) {
+        byte[] bytes = new byte[length];
+        get(position, bytes);
+        return ByteBuffer.wrap(bytes).order(order);
+    }
+
+    private void check(long position, int length) {
+        if (position < 0 || length < 0 || position + length > size) {
+            throw new IndexOutOfBoundsException("Bytes " + position + "+" + length + " outside mapping of " + size);
+        }
+    }
+}
@@ -0,0 +1,193 @@
+package com.example.plagiarism.storage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Raw deflate of document texts against a preset dictionary trained on the corpus.
+ *
+ * Essays on one assignment share the prompt, quotations and stock phrases, but each record
+ * is too short for deflate to learn them on its own. The dictionary holds those shared
+ * fragments, so every record can refer back to them from its first byte.
+ */
+public class TextCompressor {
+    public static final int MAX_DICTIONARY_BYTES = 32 * 1024; // deflate window size
+    public static final int MAX_SAMPLES = 500; // texts train() looks at
+    private static final int MAX_SAMPLE_CHARS = 20_000;
+    private static final int PHRASE_WORDS = 4;
+
+    private final byte[] dictionary;
+
+    public TextCompressor(byte[] dictionary) {
+        this.dictionary = dictionary;
+    }
+
+    public byte[] dictionary() {
+        return dictionary;
+    }
+
+    /**
+     * Builds a dictionary of up to maxBytes from fragments (sentences and short phrases)
+     * that recur across documents, scored by the bytes they would save. The best fragments
+     * go last, where deflate reaches them with the shortest distances.
+     */
+    public static byte[] train(List<String> texts, int maxBytes) {
+        maxBytes = Math.min(maxBytes, MAX_DICTIONARY_BYTES);
+        int step = Math.max(1, texts.size() / MAX_SAMPLES);
+        Map<String, Integer> documentFrequency = new HashMap<>();
+        for (int t = 0; t < texts.size(); t += step) {
+            String text = texts.get(t);
+            if (text == null || text.isEmpty()) continue;
+            if (text.length() > MAX_SAMPLE_CHARS) text = text.substring(0, MAX_SAMPLE_CHARS);
+            for (String fragment : fragments(text)) {
+                documentFrequency.merge(fragment, 1, Integer::sum);
+            }
+        }
+
+        List<Map.Entry<String, Integer>> candidates = new ArrayList<>();
+        for (Map.Entry<String, Integer> e : documentFrequency.entrySet()) {
+            if (e.getValue() > 1) candidates.add(e);
+        }
+        candidates.sort((a, b) -> Long.compare(saving(b), saving(a)));
+
+        List<String> chosen = new ArrayList<>();
+        // Chosen fragments and the phrases inside them; a phrase of a chosen sentence adds nothing
+        Set<String> covered = new HashSet<>();
+        int bytes = 0;
+        for (Map.Entry<String, Integer> e : candidates) {
+            String fragment = e.getKey();
+            int length = fragment.getBytes(StandardCharsets.UTF_8).length + 1;
+            if (bytes + length > maxBytes) continue;
+            if (!covered.add(fragment)) continue;
+            covered.addAll(phrases(fragment.split("\\s+")));
+            chosen.add(fragment);
+            bytes += length;
+        }
+
+        StringBuilder dictionary = new StringBuilder(bytes);
+        for (int i = chosen.size() - 1; i >= 0; i--) {
+            dictionary.append(chosen.get(i)).append(' ');
+        }
+        return dictionary.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    // Deflated form of the bytes, or null if that is not smaller than the input
+    public byte[] compress(byte[] raw) {
+        Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION, true);
+        try {
+            if (dictionary.length > 0) deflater.setDictionary(dictionary);
+            deflater.setInput(raw);
+            deflater.finish();
+            byte[] out = new byte[raw.length];
+            int length = 0;
+            while (!deflater.finished() && length < out.length) {
+                length += deflater.deflate(out, length, out.length - length);
+            }
+            if (!deflater.finished()) return null;
+            byte[] compressed = new byte[length];
+            System.arraycopy(out, 0, compressed, 0, length);
+            return compressed;
+        } finally {
+            deflater.end();
+        }
+    }
+
+    /**
+     * Inflates straight from the given buffer (e.g. a slice of a memory-mapped file), so the
+     * compressed bytes are never copied onto the heap.
+     */
+    public String inflate(ByteBuffer compressed, int rawBytes) throws IOException {
+        try (InputStream in = inflateStream(compressed, rawBytes)) {
+            return new String(in.readNBytes(rawBytes), StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * The rawBytes inflated bytes as a stream, for readers that do not need the whole text
+     * at once. Reads fail with an IOException if the input is corrupt or ends early.
+     */
+    public InputStream inflateStream(ByteBuffer compressed, int rawBytes) {
+        Inflater inflater = new Inflater(true);
+        if (dictionary.length > 0) inflater.setDictionary(dictionary);
+        inflater.setInput(compressed);
+        return new InflatingStream(inflater, rawBytes);
+    }
+
+    private static long saving(Map.Entry<String, Integer> e) {
+        return (long) (e.getValue() - 1) * e.getKey().length();
+    }
+
+    // Distinct sentences and word phrases of one text
+    private static Set<String> fragments(String text) {
+        Set<String> fragments = new HashSet<>();
+        for (String sentence : text.split("(?<=[.!?])\\s+|\\n+")) {
+            String s = sentence.strip();
+            if (s.length() >= 24 && s.length() <= 400) fragments.add(s);
+        }
+        fragments.addAll(phrases(text.split("\\s+")));
+        return fragments;
+    }
+
+    private static List<String> phrases(String[] words) {
+        List<String> phrases = new ArrayList<>();
+        for (int i = 0; i + PHRASE_WORDS <= words.length; i++) {
+            phrases.add(String.join(" ", Arrays.copyOfRange(words, i, i + PHRASE_WORDS)));
+        }
+        return phrases;
+    }
+
+    // Ends the inflater on close, which InflaterInputStream skips for inflaters it did not create
+    private static class InflatingStream extends InputStream {
+        private final Inflater inflater;
+        private int remaining;
+
+        InflatingStream(Inflater inflater, int rawBytes) {
+            this.inflater = inflater;
+            this.remaining = rawBytes;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] one = new byte[1];
+            return read(one, 0, 1) < 0 ? -1 : one[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            Objects.checkFromIndexSize(off, len, b.length);
+            if (remaining == 0) return -1;
+            if (len == 0) return 0;
+            try {
+                int n = inflater.inflate(b, off, Math.min(len, remaining));
+                while (n == 0) {
+                    if (inflater.finished() || inflater.needsInput() || inflater.needsDictionary()) {
+                        throw new IOException("Compressed text is truncated");
+                    }
+                    n = inflater.inflate(b, off, Math.min(len, remaining));
+                }
+                remaining -= n;
+                return n;
+            } catch (DataFormatException e) {
+                throw new IOException("Corrupt compressed text", e);
+            }
+        }
+
+        @Override
+        public void close() {
+            inflater.end();
+        }
+    }
+}
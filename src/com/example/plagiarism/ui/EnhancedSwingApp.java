@@ -3,6 +3,13 @@ package com.example.plagiarism.ui;
 import com.example.plagiarism.*;
 import com.example.plagiarism.config.AppConfig;
 import com.example.plagiarism.export.ResultExporter;
+import com.example.plagiarism.index.ExactDuplicateIndex;
+import com.example.plagiarism.index.FingerprintIndex;
+import com.example.plagiarism.index.InvertedIndex;
+import com.example.plagiarism.index.SimHashIndex;
+import com.example.plagiarism.similarity.MatchedPassage;
+import com.example.plagiarism.similarity.Winnowing;
+import com.example.plagiarism.storage.ChainLog;
 import com.example.plagiarism.supabase.SupabaseClient;
 
 import javax.swing.*;
@@ -10,6 +17,9 @@ import javax.swing.border.EmptyBorder;
 import javax.swing.border.TitledBorder;
 import javax.swing.filechooser.FileNameExtensionFilter;
 import javax.swing.table.DefaultTableModel;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.DefaultHighlighter;
+import javax.swing.text.Highlighter;
 import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.io.File;
@@ -20,6 +30,9 @@ import java.util.ArrayList;
 import java.util.List;
 
 public class EnhancedSwingApp {
+    private static final Highlighter.HighlightPainter MATCH_PAINTER =
+            new DefaultHighlighter.DefaultHighlightPainter(new Color(255, 214, 153));
+
     private final JFrame frame;
     private JTextArea textArea1;
     private JTextArea textArea2;
@@ -29,7 +42,13 @@ public class EnhancedSwingApp {
     private JProgressBar progressBar;
     private DefaultTableModel historyTableModel;
     private final Blockchain blockchain;
+    private final SimHashIndex nearDuplicateIndex;
+    private final ExactDuplicateIndex exactDuplicateIndex;
+    private final FingerprintIndex passageIndex;
+    private final InvertedIndex corpusIndex;
     private final File chainFile;
+    private final File legacyChainFile;
+    private final ChainLog chainLog;
     private final SupabaseClient supabaseClient;
     private final AppConfig config;
 
@@ -63,7 +82,13 @@ public class EnhancedSwingApp {
         frame.setContentPane(root);
 
         blockchain = new Blockchain();
-        chainFile = new File(System.getProperty("user.home"), "plagiarism_chain.txt");
+        nearDuplicateIndex = SimHashIndex.attachTo(blockchain);
+        exactDuplicateIndex = ExactDuplicateIndex.attachTo(blockchain);
+        passageIndex = FingerprintIndex.attachTo(blockchain);
+        corpusIndex = InvertedIndex.attachTo(blockchain);
+        chainFile = new File(System.getProperty("user.home"), "plagiarism_chain.seg");
+        legacyChainFile = new File(System.getProperty("user.home"), "plagiarism_chain.txt");
+        chainLog = config.getBoolean("blockchain.auto_save", true) ? openChainLog() : null;
         supabaseClient = new SupabaseClient();
 
         if (supabaseClient.isConfigured()) {
@@ -71,6 +96,35 @@ public class EnhancedSwingApp {
         }
     }
 
+    // A source already in the chain reuses its text, so repeated checks share one copy
+    private Document sourceDocument(String title, String text, String sourceUrl) {
+        Document doc = new Document(title, "web", LocalDate.now().toString(), text, sourceUrl);
+        String stored = exactDuplicateIndex.canonicalText(doc);
+        return stored == doc.getText() ? doc : new Document(title, "web", LocalDate.now().toString(), stored, sourceUrl);
+    }
+
+    // Restores the chain from the append-only log, which then records every new block
+    private ChainLog openChainLog() {
+        try {
+            ChainLog log = ChainLog.attach(blockchain, new File(System.getProperty("user.home"), "plagiarism_chain.log").toPath());
+            if (log.truncatedBytes() > 0) {
+                System.err.println("Chain log: dropped " + log.truncatedBytes() + " bytes of incomplete record");
+            }
+            for (Block b : log.recoveredBlocks()) {
+                historyTableModel.addRow(new Object[]{
+                        b.getIndex(),
+                        String.format("%.2f%%", b.getDocument().getPlagiarismScore() * 100),
+                        "-",
+                        b.getTimestamp()
+                });
+            }
+            return log;
+        } catch (IOException | RuntimeException ex) {
+            System.err.println("Chain log unavailable, falling back to full saves: " + ex.getMessage());
+            return null;
+        }
+    }
+
     private JMenuBar createMenuBar() {
         JMenuBar menuBar = new JMenuBar();
 
@@ -342,8 +396,13 @@ public class EnhancedSwingApp {
 
         progressBar.setIndeterminate(true);
         progressBar.setString("Analyzing...");
+        String algorithm = (String) algorithmBox.getSelectedItem();
 
+        // Scoring, recording the source and saving the chain all run on the worker thread
         SwingWorker<PlagiarismChecker.Result, Void> worker = new SwingWorker<>() {
+            private List<MatchedPassage> passages = List.of();
+            private Block newBlock;
+
             @Override
             protected PlagiarismChecker.Result doInBackground() {
                 Document doc1 = new Document("Submission", System.getProperty("user.name"),
@@ -351,28 +410,36 @@ public class EnhancedSwingApp {
                 Document doc2 = new Document("Source", System.getProperty("user.name"),
                         LocalDate.now().toString(), text2);
 
-                String algorithm = (String) algorithmBox.getSelectedItem();
-                return PlagiarismChecker.checkPlagiarism(doc1, doc2, algorithm);
+                passages = Winnowing.matchPassages(text1, text2);
+                PlagiarismChecker.Result result = PlagiarismChecker.checkPlagiarism(doc1, doc2, algorithm);
+
+                newBlock = blockchain.addBlock(sourceDocument("Source", text2, ""));
+                if (config.getBoolean("blockchain.auto_save", true)) {
+                    try {
+                        if (chainLog != null) {
+                            chainLog.sync();
+                        } else {
+                            StorageManager.saveChainToSegment(blockchain, chainFile);
+                        }
+                    } catch (IOException ex) {
+                        System.err.println("Auto-save failed: " + ex.getMessage());
+                    }
+                }
+                return result;
             }
 
             @Override
             protected void done() {
                 try {
                     PlagiarismChecker.Result result = get();
+                    highlightPassages(passages);
                     double percent = result.score() * 100.0;
 
-                    Color verdictColor = switch (result.verdict()) {
-                        case "Safe" -> new Color(39, 174, 96);
-                        case "Moderate" -> new Color(243, 156, 18);
-                        default -> new Color(231, 76, 60);
-                    };
+                    Color verdictColor = verdictColor(result.verdict());
 
                     resultLabel.setText(String.format("Result: %.2f%% - %s", percent, result.verdict()));
                     resultLabel.setForeground(verdictColor);
 
-                    Document doc2 = new Document("Source", "web", LocalDate.now().toString(), text2);
-                    Block newBlock = blockchain.addBlock(doc2);
-
                     historyTableModel.addRow(new Object[]{
                             newBlock.getIndex(),
                             String.format("%.2f%%", percent),
@@ -380,14 +447,6 @@ public class EnhancedSwingApp {
                             newBlock.getTimestamp()
                     });
 
-                    if (config.getBoolean("blockchain.auto_save", true)) {
-                        try {
-                            StorageManager.saveChainToFile(blockchain, chainFile);
-                        } catch (IOException ex) {
-                            System.err.println("Auto-save failed: " + ex.getMessage());
-                        }
-                    }
-
                     progressBar.setIndeterminate(false);
                     progressBar.setValue(100);
                     progressBar.setString("Complete");
@@ -419,7 +478,7 @@ public class EnhancedSwingApp {
         SwingWorker<SourceDiscoveryService.DiscoveredSource, Void> worker = new SwingWorker<>() {
             @Override
             protected SourceDiscoveryService.DiscoveredSource doInBackground() {
-                SourceDiscoveryService discovery = new SourceDiscoveryService();
+                SourceDiscoveryService discovery = new SourceDiscoveryService(nearDuplicateIndex, corpusIndex, passageIndex);
                 return discovery.discoverOriginalSource(submission).orElse(null);
             }
 
@@ -475,27 +534,53 @@ public class EnhancedSwingApp {
 
                     textArea2.setText(originalText);
                     sourceUrlLabel.setText("Source: " + (sourceUrl.isBlank() ? "(local file)" : sourceUrl));
+                    compareWithSource(submission, originalText, sourceUrl);
 
-                    Document docSubmission = new Document("Submission", System.getProperty("user.name"),
-                            LocalDate.now().toString(), submission);
-                    Document docOriginal = new Document("OriginalSource", "web",
-                            LocalDate.now().toString(), originalText, sourceUrl);
+                } catch (Exception ex) {
+                    JOptionPane.showMessageDialog(frame, "Source discovery failed: " + ex.getMessage());
+                    progressBar.setIndeterminate(false);
+                    progressBar.setValue(0);
+                    progressBar.setString("Failed");
+                }
+            }
+        };
+
+        worker.execute();
+    }
+
+    // Scores the submission against the found source and records the source, both off the event thread
+    private void compareWithSource(String submission, String originalText, String sourceUrl) {
+        progressBar.setString("Comparing with source...");
+        String algorithm = (String) algorithmBox.getSelectedItem();
+
+        SwingWorker<PlagiarismChecker.Result, Void> worker = new SwingWorker<>() {
+            private List<MatchedPassage> passages = List.of();
+            private Block newBlock;
 
-                    String algorithm = (String) algorithmBox.getSelectedItem();
-                    PlagiarismChecker.Result result = PlagiarismChecker.checkPlagiarism(docSubmission, docOriginal, algorithm);
+            @Override
+            protected PlagiarismChecker.Result doInBackground() {
+                Document docSubmission = new Document("Submission", System.getProperty("user.name"),
+                        LocalDate.now().toString(), submission);
+                Document docOriginal = sourceDocument("OriginalSource", originalText, sourceUrl);
+
+                passages = Winnowing.matchPassages(submission, originalText);
+                PlagiarismChecker.Result result = PlagiarismChecker.checkPlagiarism(docSubmission, docOriginal, algorithm);
+                newBlock = blockchain.addBlock(docOriginal);
+                return result;
+            }
 
+            @Override
+            protected void done() {
+                try {
+                    PlagiarismChecker.Result result = get();
+                    highlightPassages(passages);
                     double percent = result.score() * 100.0;
 
-                    Color verdictColor = switch (result.verdict()) {
-                        case "Safe" -> new Color(39, 174, 96);
-                        case "Moderate" -> new Color(243, 156, 18);
-                        default -> new Color(231, 76, 60);
-                    };
+                    Color verdictColor = verdictColor(result.verdict());
 
                     resultLabel.setText(String.format("Result: %.2f%% - %s", percent, result.verdict()));
                     resultLabel.setForeground(verdictColor);
 
-                    Block newBlock = blockchain.addBlock(docOriginal);
                     historyTableModel.addRow(new Object[]{
                             newBlock.getIndex(),
                             String.format("%.2f%%", percent),
@@ -519,6 +604,33 @@ public class EnhancedSwingApp {
         worker.execute();
     }
 
+    private static Color verdictColor(String verdict) {
+        switch (verdict) {
+            case "Safe":
+                return new Color(39, 174, 96);
+            case "Moderate":
+                return new Color(243, 156, 18);
+            default:
+                return new Color(231, 76, 60);
+        }
+    }
+
+    // Marks copied passages in both text areas; offsets are only valid for the texts that were checked
+    private void highlightPassages(List<MatchedPassage> passages) {
+        Highlighter submissionHighlighter = textArea1.getHighlighter();
+        Highlighter sourceHighlighter = textArea2.getHighlighter();
+        submissionHighlighter.removeAllHighlights();
+        sourceHighlighter.removeAllHighlights();
+        for (MatchedPassage passage : passages) {
+            try {
+                submissionHighlighter.addHighlight(passage.queryStart(), passage.queryEnd(), MATCH_PAINTER);
+                sourceHighlighter.addHighlight(passage.sourceStart(), passage.sourceEnd(), MATCH_PAINTER);
+            } catch (BadLocationException ex) {
+                // Text was edited while the check ran; skip the stale passage
+            }
+        }
+    }
+
     private void onUseLastSource() {
         List<Block> blocks = blockchain.getBlocks();
         if (blocks.size() <= 1) {
@@ -544,7 +656,7 @@ public class EnhancedSwingApp {
 
     private void onSave() {
         try {
-            StorageManager.saveChainToFile(blockchain, chainFile);
+            StorageManager.saveChainToSegment(blockchain, chainFile);
             JOptionPane.showMessageDialog(frame, "Blockchain saved to: " + chainFile.getAbsolutePath());
         } catch (IOException ex) {
             JOptionPane.showMessageDialog(frame, "Save failed: " + ex.getMessage());
@@ -553,7 +665,9 @@ public class EnhancedSwingApp {
 
     private void onLoad() {
         try {
-            Blockchain loaded = StorageManager.loadChainFromFile(chainFile);
+            // Chains saved before the binary format are still read from the old text file
+            File source = !chainFile.exists() && legacyChainFile.exists() ? legacyChainFile : chainFile;
+            Blockchain loaded = StorageManager.loadChainFromFile(source);
             if (!loaded.isChainValid()) {
                 JOptionPane.showMessageDialog(frame, "Loaded chain is invalid!");
                 return;
@@ -580,9 +694,15 @@ public class EnhancedSwingApp {
         chooser.setDialogTitle("Export Results");
 
         switch (format) {
-            case "json" -> chooser.setSelectedFile(new File("blockchain_export.json"));
-            case "csv" -> chooser.setSelectedFile(new File("results_export.csv"));
-            case "report" -> chooser.setSelectedFile(new File("plagiarism_report.txt"));
+            case "json":
+                chooser.setSelectedFile(new File("blockchain_export.json"));
+                break;
+            case "csv":
+                chooser.setSelectedFile(new File("results_export.csv"));
+                break;
+            case "report":
+                chooser.setSelectedFile(new File("plagiarism_report.txt"));
+                break;
         }
 
         int result = chooser.showSaveDialog(frame);
@@ -667,47 +787,45 @@ public class EnhancedSwingApp {
     }
 
     private void showAbout() {
-        String about = """
-                Advanced Plagiarism Detection System v2.0
-
-                Features:
-                - Multiple similarity algorithms (Cosine, Jaccard, Levenshtein, N-Gram)
-                - AI-powered source discovery
-                - Blockchain-based tamper-proof storage
-                - Cloud synchronization with Supabase
-                - Export results to JSON, CSV, and detailed reports
-
-                Developed for academic integrity and content verification.
-                """;
+        String about =
+                "Advanced Plagiarism Detection System v2.0\n" +
+                "\n" +
+                "Features:\n" +
+                "- Multiple similarity algorithms (Cosine, Jaccard, Levenshtein, N-Gram)\n" +
+                "- AI-powered source discovery\n" +
+                "- Blockchain-based tamper-proof storage\n" +
+                "- Cloud synchronization with Supabase\n" +
+                "- Export results to JSON, CSV, and detailed reports\n" +
+                "\n" +
+                "Developed for academic integrity and content verification.\n";
 
         JOptionPane.showMessageDialog(frame, about, "About", JOptionPane.INFORMATION_MESSAGE);
     }
 
     private void showHelp() {
-        String help = """
-                User Guide
-
-                1. Load Documents:
-                   - Enter text directly or upload files
-                   - Use "Paste" to paste from clipboard
-
-                2. Run Analysis:
-                   - Select an algorithm
-                   - Click "Check Plagiarism" for manual comparison
-                   - Click "Auto Find Source" to discover sources online
-
-                3. View Results:
-                   - Similarity score and verdict displayed
-                   - History tracked in blockchain
-
-                4. Export:
-                   - Save blockchain data
-                   - Export reports in various formats
-
-                5. Settings:
-                   - Configure thresholds
-                   - Enable/disable AI features
-                """;
+        String help =
+                "User Guide\n" +
+                "\n" +
+                "1. Load Documents:\n" +
+                "   - Enter text directly or upload files\n" +
+                "   - Use \"Paste\" to paste from clipboard\n" +
+                "\n" +
+                "2. Run Analysis:\n" +
+                "   - Select an algorithm\n" +
+                "   - Click \"Check Plagiarism\" for manual comparison\n" +
+                "   - Click \"Auto Find Source\" to discover sources online\n" +
+                "\n" +
+                "3. View Results:\n" +
+                "   - Similarity score and verdict displayed\n" +
+                "   - History tracked in blockchain\n" +
+                "\n" +
+                "4. Export:\n" +
+                "   - Save blockchain data\n" +
+                "   - Export reports in various formats\n" +
+                "\n" +
+                "5. Settings:\n" +
+                "   - Configure thresholds\n" +
+                "   - Enable/disable AI features\n";
 
         JTextArea textArea = new JTextArea(help);
         textArea.setEditable(false);
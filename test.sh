@@ -0,0 +1,16 @@
+#!/bin/bash
+set -e
+
+# Compiles the sources and the checks under test/ into out-test, then runs each check's main method
+rm -rf out-test
+javac -encoding UTF-8 --release 11 -d out-test/main @sources.list
+cp -r src/META-INF out-test/main/
+if java --list-modules 2>/dev/null | grep -q '^jdk.incubator.vector@'; then
+    javac -encoding UTF-8 --add-modules jdk.incubator.vector -cp out-test/main -d out-test/main $(find src-vector -name "*.java")
+fi
+find test -name "*.java" > out-test/tests.list
+javac -encoding UTF-8 -cp out-test/main -d out-test/test @out-test/tests.list
+
+for test in $(sed -e 's|^test/||' -e 's|\.java$||' -e 's|/|.|g' out-test/tests.list); do
+    java --add-modules jdk.incubator.vector -cp out-test/main:out-test/test "$test"
+done
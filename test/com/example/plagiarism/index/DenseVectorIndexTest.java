@@ -0,0 +1,54 @@
+package com.example.plagiarism.index;
+
+import com.example.plagiarism.Block;
+import com.example.plagiarism.Blockchain;
+import com.example.plagiarism.Document;
+import com.example.plagiarism.similarity.DenseKernel;
+
+import java.util.List;
+
+// Run with test.sh; exits non-zero on the first failed check
+public class DenseVectorIndexTest {
+    public static void main(String[] args) {
+        chunkedMatrixScoresLikeOneArray();
+        System.out.println("DenseVectorIndexTest: all checks passed");
+    }
+
+    // Three rows per chunk: every search batch is cut at chunk ends, and the last chunk grows
+    static void chunkedMatrixScoresLikeOneArray() {
+        int dimensions = 64;
+        DenseVectorIndex chunked = new DenseVectorIndex(dimensions, DenseKernel.best(), 3 * dimensions + 5);
+        DenseVectorIndex single = new DenseVectorIndex(dimensions, DenseKernel.best());
+        Blockchain chain = new Blockchain();
+        for (DenseVectorIndex index : List.of(chunked, single)) {
+            index.chainReplaced(chain.getBlocks());
+            chain.addListener(index);
+        }
+        for (int i = 0; i < 100; i++) {
+            StringBuilder sb = new StringBuilder();
+            for (int k = 0; k < 40; k++) sb.append(word((i * 13 + k * k) % 97)).append(' ');
+            chain.addBlock(new Document("Doc " + i, "author", "2024-01-01", sb.toString()));
+        }
+        check(chunked.size() == 101 && single.size() == 101, "every block indexed");
+
+        Document query = chain.getBlocks().get(42).getDocument();
+        List<InvertedIndex.SearchHit> expected = single.search(query, 101);
+        List<InvertedIndex.SearchHit> actual = chunked.search(query, 101);
+        check(actual.size() == expected.size(), "same number of hits");
+        for (int h = 0; h < expected.size(); h++) {
+            Block a = actual.get(h).block();
+            Block e = expected.get(h).block();
+            check(a == e && actual.get(h).score() == expected.get(h).score(), "hit " + h);
+        }
+        check(actual.get(0).block().getIndex() == 42, "a document is its own best match");
+    }
+
+    // Letters only, so the analyzer keeps every word distinct
+    static String word(int n) {
+        return "w" + (char) ('a' + n / 26) + (char) ('a' + n % 26);
+    }
+
+    static void check(boolean condition, String what) {
+        if (!condition) throw new AssertionError("DenseVectorIndexTest failed: " + what);
+    }
+}
@@ -0,0 +1,195 @@
+package com.example.plagiarism.storage;
+
+import com.example.plagiarism.Block;
+import com.example.plagiarism.Blockchain;
+import com.example.plagiarism.Document;
+import com.example.plagiarism.TextCache;
+import com.example.plagiarism.index.ExactDuplicateIndex;
+import com.example.plagiarism.index.FingerprintIndex;
+import com.example.plagiarism.index.InvertedIndex;
+import com.example.plagiarism.index.SimHashIndex;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Field;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+// Run with test.sh; exits non-zero on the first failed check
+public class ChainLogTest {
+    public static void main(String[] args) throws Exception {
+        Path dir = Files.createTempDirectory("chainlog-test");
+        try {
+            openingDoesNotLoadTexts(dir.resolve("large.log"));
+            failedAppendKeepsChainAndLogInStep(dir.resolve("failing.log"));
+            textsReadAcrossChunkBoundaries(dir.resolve("chunked.log"));
+            System.out.println("ChainLogTest: all checks passed");
+        } finally {
+            try (var files = Files.list(dir)) {
+                for (Path p : (Iterable<Path>) files::iterator) Files.delete(p);
+            }
+            Files.delete(dir);
+        }
+    }
+
+    // Restoring the chain with the app's indexes attached reads no document text
+    static void openingDoesNotLoadTexts(Path file) throws Exception {
+        int count = 5_000;
+        Blockchain source = new Blockchain();
+        try (ChainLog log = ChainLog.attach(source, file)) {
+            for (int i = 0; i < count; i++) {
+                source.addBlock(new Document("Essay " + i, "author", "2024-01-01", essay(i), ""));
+            }
+        }
+
+        TextCache.shared().clear();
+        long loadsBefore = TextCache.shared().loads();
+        Blockchain restored = new Blockchain();
+        SimHashIndex nearDuplicates = SimHashIndex.attachTo(restored);
+        ExactDuplicateIndex exactDuplicates = ExactDuplicateIndex.attachTo(restored);
+        FingerprintIndex passages = FingerprintIndex.attachTo(restored);
+        InvertedIndex corpus = InvertedIndex.attachTo(restored);
+        try (ChainLog log = ChainLog.attach(restored, file)) {
+            check(restored.getBlocks().size() == count + 1, "all blocks restored");
+            check(TextCache.shared().loads() == loadsBefore, "opening the log loaded "
+                    + (TextCache.shared().loads() - loadsBefore) + " texts");
+            check(exactDuplicates.distinctTexts() == count + 1, "exact index built from stored digests");
+
+            // The first query indexes the queued blocks and finds the stored text
+            Block last = restored.getBlocks().get(count);
+            check(!nearDuplicates.findNear(last.getDocument()).isEmpty(), "near-duplicate found after open");
+            check(!passages.search(essay(count - 1)).isEmpty(), "copied passage found after open");
+            check(corpus.size() == count + 1 && corpus.search(last.getDocument(), 1).get(0).score() > 0.99,
+                    "similar block found after open");
+            check(TextCache.shared().loads() > loadsBefore, "queries read texts on demand");
+        }
+    }
+
+    // With 4 KiB mapping chunks most texts straddle a boundary, as texts do every 1 GiB in a large log
+    static void textsReadAcrossChunkBoundaries(Path file) throws Exception {
+        Blockchain chain = new Blockchain();
+        try (ChainLog log = ChainLog.attach(chain, file)) {
+            for (int i = 0; i < 200; i++) chain.addBlock(new Document("Essay " + i, "a", "", essay(i), ""));
+        }
+        TextCache.shared().clear();
+        try (ChainLog log = ChainLog.open(file, false, 4096)) {
+            List<Block> blocks = log.recoveredBlocks();
+            check(blocks.size() == 201, "all blocks recovered from chunked mapping");
+            for (int i = 0; i < 200; i++) {
+                check(blocks.get(i + 1).getDocument().getText().equals(essay(i)), "text " + i + " read intact");
+            }
+        }
+    }
+
+    /**
+     * A write that fails partway, and whose cleanup fails too, must not leave the block in
+     * memory or in the indexes; the next append rewrites the log, which then reopens valid.
+     */
+    static void failedAppendKeepsChainAndLogInStep(Path file) throws Exception {
+        Blockchain chain = new Blockchain();
+        List<Block> indexed = new ArrayList<>();
+        chain.addListener(new Blockchain.Listener() {
+            @Override
+            public void blockAdded(Block block) {
+                indexed.add(block);
+            }
+
+            @Override
+            public void chainReplaced(List<Block> blocks) {
+                indexed.clear();
+                indexed.addAll(blocks);
+            }
+        });
+        try (ChainLog log = ChainLog.attach(chain, file)) {
+            for (int i = 0; i < 10; i++) chain.addBlock(new Document("Essay " + i, "a", "", essay(i), ""));
+
+            Field channelField = ChainLog.class.getDeclaredField("channel");
+            channelField.setAccessible(true);
+            channelField.set(log, new FailingChannel((FileChannel) channelField.get(log), 20));
+            try {
+                chain.addBlock(new Document("Lost", "a", "", essay(100), ""));
+                check(false, "append on a failing channel should throw");
+            } catch (UncheckedIOException expected) {
+                // the injected failure
+            }
+            check(chain.getBlocks().size() == 11, "failed block rolled back, size " + chain.getBlocks().size());
+            check(indexed.size() == 11, "earlier listener reset to the chain without the block");
+
+            chain.addBlock(new Document("Kept", "a", "", essay(101), ""));
+            check(!(channelField.get(log) instanceof FailingChannel), "next append rewrote the log");
+            log.sync();
+        }
+
+        Blockchain reopened = new Blockchain();
+        try (ChainLog log = ChainLog.attach(reopened, file)) {
+            check(log.truncatedBytes() == 0, "no torn record left behind");
+            check(reopened.getBlocks().size() == 12, "reopened size " + reopened.getBlocks().size());
+            check(reopened.isChainValid(), "reopened chain is valid");
+            check(reopened.getBlocks().get(11).getDocument().getTitle().equals("Kept"), "last block is the kept one");
+        }
+        check(!Files.exists(file.resolveSibling(file.getFileName() + ".tmp")), "no temp file left behind");
+    }
+
+    // Writes a few bytes of the first record, then fails; truncating fails too
+    static class FailingChannel extends FileChannel {
+        private final FileChannel delegate;
+        private int bytesLeft;
+
+        FailingChannel(FileChannel delegate, int bytesBeforeFailure) {
+            this.delegate = delegate;
+            this.bytesLeft = bytesBeforeFailure;
+        }
+
+        @Override
+        public int write(ByteBuffer src) throws IOException {
+            if (bytesLeft == 0) throw new IOException("injected write failure");
+            ByteBuffer part = src.slice();
+            part.limit(Math.min(part.remaining(), bytesLeft));
+            int written = delegate.write(part);
+            src.position(src.position() + written);
+            bytesLeft -= written;
+            return written;
+        }
+
+        @Override
+        public FileChannel truncate(long size) throws IOException {
+            throw new IOException("injected truncate failure");
+        }
+
+        @Override public int read(ByteBuffer dst) throws IOException { return delegate.read(dst); }
+        @Override public long read(ByteBuffer[] dsts, int offset, int length) throws IOException { return delegate.read(dsts, offset, length); }
+        @Override public long write(ByteBuffer[] srcs, int offset, int length) throws IOException { throw new IOException("injected write failure"); }
+        @Override public long position() throws IOException { return delegate.position(); }
+        @Override public FileChannel position(long newPosition) throws IOException { delegate.position(newPosition); return this; }
+        @Override public long size() throws IOException { return delegate.size(); }
+        @Override public void force(boolean metaData) throws IOException { delegate.force(metaData); }
+        @Override public long transferTo(long position, long count, WritableByteChannel target) throws IOException { return delegate.transferTo(position, count, target); }
+        @Override public long transferFrom(ReadableByteChannel src, long position, long count) throws IOException { throw new IOException("injected write failure"); }
+        @Override public int read(ByteBuffer dst, long position) throws IOException { return delegate.read(dst, position); }
+        @Override public int write(ByteBuffer src, long position) throws IOException { throw new IOException("injected write failure"); }
+        @Override public MappedByteBuffer map(MapMode mode, long position, long size) throws IOException { return delegate.map(mode, position, size); }
+        @Override public FileLock lock(long position, long size, boolean shared) throws IOException { return delegate.lock(position, size, shared); }
+        @Override public FileLock tryLock(long position, long size, boolean shared) throws IOException { return delegate.tryLock(position, size, shared); }
+        @Override protected void implCloseChannel() throws IOException { delegate.close(); }
+    }
+
+    static String essay(int i) {
+        StringBuilder sb = new StringBuilder("Essay number ").append(i).append(". ");
+        for (int k = 0; k < 80; k++) {
+            sb.append("word").append((i * 31 + k * 7) % 1009).append(k % 9 == 8 ? ". " : " ");
+        }
+        return sb.toString();
+    }
+
+    static void check(boolean condition, String what) {
+        if (!condition) throw new AssertionError("ChainLogTest failed: " + what);
+    }
+}
@@ -0,0 +1,129 @@
+package com.example.plagiarism.storage;
+
+import com.example.plagiarism.Block;
+import com.example.plagiarism.Blockchain;
+import com.example.plagiarism.Document;
+import com.example.plagiarism.TextCache;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+// Run with test.sh; exits non-zero on the first failed check
+public class ChainSegmentTest {
+    public static void main(String[] args) throws Exception {
+        Path dir = Files.createTempDirectory("segment-test");
+        try {
+            blocksReadAcrossChunkBoundaries(dir.resolve("chunked.seg"));
+            textsStreamWithoutLoading(dir.resolve("compressed.seg"), TextCompressor.MAX_DICTIONARY_BYTES);
+            textsStreamWithoutLoading(dir.resolve("plain.seg"), -1);
+            damagedBlobIsReported(dir.resolve("damaged.seg"));
+            System.out.println("ChainSegmentTest: all checks passed");
+        } finally {
+            try (var files = Files.list(dir)) {
+                for (Path p : (Iterable<Path>) files::iterator) Files.delete(p);
+            }
+            Files.delete(dir);
+        }
+    }
+
+    // With 4 KiB mapping chunks, records, blobs and index entries straddle chunk boundaries
+    static void blocksReadAcrossChunkBoundaries(Path file) throws Exception {
+        Blockchain chain = chain(300);
+        ChainSegment.write(chain.getBlocks(), file, TextCompressor.MAX_DICTIONARY_BYTES);
+        TextCache.shared().clear();
+        try (ChainSegment segment = ChainSegment.open(file, 4096)) {
+            check(segment.size() == 301, "all blocks indexed");
+            for (int i = 0; i < segment.size(); i++) {
+                Block expected = chain.getBlocks().get(i);
+                Block read = segment.block(i, true);
+                check(read.getHash().equals(expected.getHash()) && segment.hash(i).equals(expected.getHash()), "hash " + i);
+                check(read.getDocument().getText().equals(expected.getDocument().getText()), "text " + i);
+            }
+        }
+    }
+
+    // openText() inflates or copies in pieces and leaves the TextCache alone
+    static void textsStreamWithoutLoading(Path file, int dictionaryBytes) throws Exception {
+        Blockchain chain = chain(50);
+        ChainSegment.write(chain.getBlocks(), file, dictionaryBytes);
+        TextCache.shared().clear();
+        try (ChainSegment segment = ChainSegment.open(file, 4096)) {
+            List<Block> blocks = segment.blocks(true);
+            long loads = TextCache.shared().loads();
+            for (int i = 1; i < blocks.size(); i++) {
+                StringBuilder streamed = new StringBuilder();
+                char[] buffer = new char[100];
+                try (Reader reader = blocks.get(i).getDocument().openText()) {
+                    for (int n; (n = reader.read(buffer)) >= 0; ) streamed.append(buffer, 0, n);
+                }
+                check(streamed.toString().equals(chain.getBlocks().get(i).getDocument().getText()), "streamed text " + i);
+            }
+            check(TextCache.shared().loads() == loads, "streaming does not load texts");
+        }
+    }
+
+    // A flipped byte inside a stored text fails that text's first load
+    static void damagedBlobIsReported(Path file) throws Exception {
+        Blockchain chain = chain(20);
+        ChainSegment.write(chain.getBlocks(), file, -1);
+        String target = chain.getBlocks().get(5).getDocument().getText();
+        byte[] content = Files.readAllBytes(file);
+        int at = indexOf(content, target.getBytes(StandardCharsets.UTF_8));
+        check(at > 0, "stored text found in file");
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[]{(byte) (content[at + 10] ^ 1)}), at + 10);
+        }
+        TextCache.shared().clear();
+        try (ChainSegment segment = ChainSegment.open(file)) {
+            List<Block> blocks = segment.blocks(true);
+            check(blocks.get(4).getDocument().getText().equals(chain.getBlocks().get(4).getDocument().getText()), "intact text reads");
+            try (Reader reader = blocks.get(5).getDocument().openText()) {
+                while (reader.read() >= 0) {
+                    // read to the end, where the digest is checked
+                }
+                check(false, "damaged text should fail its digest check when streamed");
+            } catch (IOException expected) {
+                // digest mismatch
+            }
+            try {
+                blocks.get(5).getDocument().getText();
+                check(false, "damaged text should fail its digest check");
+            } catch (UncheckedIOException expected) {
+                // digest mismatch
+            }
+        }
+    }
+
+    static Blockchain chain(int count) {
+        Blockchain chain = new Blockchain();
+        for (int i = 0; i < count; i++) {
+            StringBuilder sb = new StringBuilder("Essay number ").append(i).append(". ");
+            for (int k = 0; k < 120; k++) sb.append("word").append((i * 31 + k * 7) % 1009).append(' ');
+            chain.addBlock(new Document("Essay " + i, "author", "2024-01-01", sb.toString(), ""));
+        }
+        return chain;
+    }
+
+    static int indexOf(byte[] haystack, byte[] needle) {
+        outer:
+        for (int i = 0; i + needle.length <= haystack.length; i++) {
+            for (int k = 0; k < needle.length; k++) {
+                if (haystack[i + k] != needle[k]) continue outer;
+            }
+            return i;
+        }
+        return -1;
+    }
+
+    static void check(boolean condition, String what) {
+        if (!condition) throw new AssertionError("ChainSegmentTest failed: " + what);
+    }
+}